@@ -0,0 +1,126 @@
+package ka.chapter2.item3.order;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+public class ChunkedOrderStore {
+    private static final int DEFAULT_FIRST_CHUNK_BITS = 10;
+
+    // k번째 청크의 크기는 첫 청크 크기 * 2^k 이다. 청크를 옮겨 담지 않으므로 이미 저장된 주문은 움직이지 않는다.
+    private final int firstChunkBits;
+    private final long capacity;
+    private final AtomicReferenceArray<AtomicReferenceArray<Order>> chunks;
+
+    // 쓰는 쪽은 이 값을 하나씩 증가시켜 자기 칸을 받으므로 서로 기다리지 않는다.
+    private final AtomicInteger claimed = new AtomicInteger();
+    // 앞에서부터 빈틈없이 채워진 칸 수. 읽는 쪽은 여기까지만 보므로 아직 쓰이지 않은 칸을 기다리지 않는다.
+    private final AtomicInteger published = new AtomicInteger();
+
+    public ChunkedOrderStore() {
+        this(DEFAULT_FIRST_CHUNK_BITS);
+    }
+
+    public ChunkedOrderStore(int firstChunkBits) {
+        if (firstChunkBits < 0 || firstChunkBits > 20) {
+            throw new IllegalArgumentException("firstChunkBits must be between 0 and 20: " + firstChunkBits);
+        }
+        this.firstChunkBits = firstChunkBits;
+        // 가장 큰 청크가 2^30칸을 넘지 않도록 제한
+        this.capacity = (1L << 31) - (1L << firstChunkBits);
+        this.chunks = new AtomicReferenceArray<>(31 - firstChunkBits);
+    }
+
+    public void add(Order order) {
+        Objects.requireNonNull(order);
+        int index = claimed.getAndIncrement();
+        if (index < 0 || index >= capacity) {
+            throw new IllegalStateException("order store is full");
+        }
+
+        long position = position(index);
+        int chunkIndex = chunkIndex(position);
+        AtomicReferenceArray<Order> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            AtomicReferenceArray<Order> created = new AtomicReferenceArray<>(1 << (chunkIndex + firstChunkBits));
+            chunk = chunks.compareAndSet(chunkIndex, null, created) ? created : chunks.get(chunkIndex);
+        }
+        // volatile 쓰기로 주문 객체를 안전하게 공개한다.
+        chunk.set(offset(position, chunkIndex), order);
+        publish();
+    }
+
+    // 채워진 칸이 이어지는 데까지 published를 올린다. 앞 칸이 늦게 채워지면 그 칸을 쓴 스레드가 이어서 올린다.
+    // 칸을 받고 쓰지 못한 채 실패한 스레드가 있으면 그 뒤의 주문은 보이지 않지만, 읽는 쪽이 멈추지는 않는다.
+    private void publish() {
+        int next = published.get();
+        while (next < capacity && stored(next) != null) {
+            published.compareAndSet(next, next + 1);
+            next = published.get();
+        }
+    }
+
+    private Order stored(int index) {
+        long position = position(index);
+        int chunkIndex = chunkIndex(position);
+        AtomicReferenceArray<Order> chunk = chunks.get(chunkIndex);
+        return chunk == null ? null : chunk.get(offset(position, chunkIndex));
+    }
+
+    public int size() {
+        return published.get();
+    }
+
+    public Order get(int index) {
+        Objects.checkIndex(index, size());
+        return stored(index);
+    }
+
+    public void forEach(Consumer<? super Order> action) {
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    // 호출 시점까지 저장된 주문만 보여주는 읽기 전용 뷰
+    public List<Order> toList() {
+        int size = size();
+        return new SnapshotList(size);
+    }
+
+    private long position(int index) {
+        return index + (1L << firstChunkBits);
+    }
+
+    private int chunkIndex(long position) {
+        return 63 - Long.numberOfLeadingZeros(position) - firstChunkBits;
+    }
+
+    private int offset(long position, int chunkIndex) {
+        return (int) (position - (1L << (chunkIndex + firstChunkBits)));
+    }
+
+    private class SnapshotList extends AbstractList<Order> implements RandomAccess {
+        private final int size;
+
+        SnapshotList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Order get(int index) {
+            Objects.checkIndex(index, size);
+            return ChunkedOrderStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
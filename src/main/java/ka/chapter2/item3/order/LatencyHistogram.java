@@ -0,0 +1,86 @@
+package ka.chapter2.item3.order;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    // 2의 거듭제곱 구간마다 32칸으로 나누는 로그-선형 버킷 (상대 오차 약 3%)
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    // 수천 개의 스레드가 같은 칸을 두고 경쟁하지 않도록 여러 벌로 나눠 기록한다.
+    private final AtomicLongArray[] stripes;
+
+    public LatencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public LatencyHistogram(int stripeCount) {
+        stripes = new AtomicLongArray[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public void record(long nanos) {
+        int stripe = (int) (Thread.currentThread().getId() % stripes.length);
+        stripes[stripe].incrementAndGet(index(Math.max(0, nanos)));
+    }
+
+    public long count() {
+        long count = 0;
+        for (long bucket : merge()) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    // percentile은 0 ~ 100
+    public long percentile(double percentile) {
+        long[] counts = merge();
+        long total = 0;
+        for (long bucket : counts) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    private long[] merge() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return counts;
+    }
+
+    static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + mantissa;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = (index - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        long mantissa = (index - SUB_COUNT) % SUB_COUNT;
+        return ((SUB_COUNT + mantissa + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,52 @@
+package ka.chapter2.item3.order;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class NicknameDictionary {
+    public static final NicknameDictionary INSTANCE = new NicknameDictionary();
+    // null 닉네임은 0번으로 고정하고, 실제 닉네임은 1번부터 빈틈없이 번호를 매긴다.
+    public static final int NULL_ID = 0;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // 번호 -> 닉네임. 새 닉네임은 드물기 때문에 추가할 때만 락을 잡고, 조회는 락 없이 배열을 읽는다.
+    private volatile String[] nicknames = new String[1024];
+    private int size = 1;
+
+    NicknameDictionary() {
+    }
+
+    public int intern(String nickname) {
+        if (nickname == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(nickname);
+        return id != null ? id : add(nickname);
+    }
+
+    private synchronized int add(String nickname) {
+        Integer id = ids.get(nickname);
+        if (id != null) {
+            return id;
+        }
+        String[] current = nicknames;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = nickname;
+        nicknames = current;
+        // 배열에 먼저 쓴 뒤 맵에 넣으므로, 맵에서 번호를 얻은 스레드는 항상 닉네임을 볼 수 있다.
+        ids.put(nickname, size);
+        return size++;
+    }
+
+    public String nickname(int id) {
+        return nicknames[id];
+    }
+
+    // null 자리를 포함한 번호 개수
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -1,19 +1,32 @@
 package ka.chapter2.item3.order;
 
 public class Order {
-    private String nickname;
+    // 같은 닉네임 문자열을 주문마다 들고 있지 않도록 사전 번호만 저장한다.
+    private int nicknameId;
 
     private int price;
 
     public Order(String nickname, int price) {
-        this.nickname = nickname;
+        this.nicknameId = NicknameDictionary.INSTANCE.intern(nickname);
         this.price = price;
     }
 
+    public String getNickname() {
+        return NicknameDictionary.INSTANCE.nickname(nicknameId);
+    }
+
+    int getNicknameId() {
+        return nicknameId;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
     @Override
     public String toString() {
         return "Order{" +
-                "nickname='" + nickname + '\'' +
+                "nickname='" + getNickname() + '\'' +
                 ", price=" + price +
                 '}';
     }
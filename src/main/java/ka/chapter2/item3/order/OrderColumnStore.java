@@ -0,0 +1,166 @@
+package ka.chapter2.item3.order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+public class OrderColumnStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    // 이보다 적은 주문은 병렬 스트림 비용이 더 크다.
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int PARALLEL_CHUNK = 1 << 16;
+
+    // 닉네임은 이 저장소 안에서 쓰는 번호(int)로 바꿔 저장한다.
+    // 주문이 이미 공용 사전 번호를 들고 있으므로 문자열 해시 없이 배열 하나로 바꾼다. (공용 번호 -> 저장소 번호 + 1)
+    private int[] localIds = new int[1024];
+    private String[] nicknames = new String[16];
+    private int nicknameCount;
+
+    // 배열은 늘어날 때 복사만 되고 이미 쓴 칸은 바뀌지 않으므로, 스냅샷을 잡은 뒤에는 락 없이 읽는다.
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] nicknameIds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public synchronized void append(Order order) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            nicknameIds = Arrays.copyOf(nicknameIds, size * 2);
+        }
+        prices[size] = order.getPrice();
+        nicknameIds[size] = encode(order.getNicknameId());
+        size++;
+    }
+
+    // 원본 저장소에서 아직 옮기지 않은 주문만 이어서 옮긴다.
+    public synchronized void catchUp(ChunkedOrderStore source) {
+        int target = source.size();
+        for (int i = size; i < target; i++) {
+            append(source.get(i));
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long sumPrice() {
+        Columns columns = snapshot();
+        int[] prices = columns.prices;
+        if (columns.size >= PARALLEL_THRESHOLD) {
+            return Arrays.stream(prices, 0, columns.size).parallel().asLongStream().sum();
+        }
+        long sum = 0;
+        for (int i = 0; i < columns.size; i++) {
+            sum += prices[i];
+        }
+        return sum;
+    }
+
+    public Map<String, Long> sumPriceByNickname() {
+        Columns columns = snapshot();
+        long[] totals = totalsByNickname(columns);
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int id = 0; id < totals.length; id++) {
+            result.put(columns.nicknames[id], totals[id]);
+        }
+        return result;
+    }
+
+    public List<Map.Entry<String, Long>> topSpenders(int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        Columns columns = snapshot();
+        long[] totals = totalsByNickname(columns);
+
+        // 크기 n의 최소 힙으로 상위 n명만 남긴다.
+        PriorityQueue<Integer> heap = new PriorityQueue<>(n, (a, b) -> Long.compare(totals[a], totals[b]));
+        for (int id = 0; id < totals.length; id++) {
+            if (heap.size() < n) {
+                heap.add(id);
+            } else if (totals[id] > totals[heap.peek()]) {
+                heap.poll();
+                heap.add(id);
+            }
+        }
+
+        List<Map.Entry<String, Long>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int id = heap.poll();
+            result.add(Map.entry(columns.nicknames[id], totals[id]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private long[] totalsByNickname(Columns columns) {
+        int[] prices = columns.prices;
+        int[] ids = columns.nicknameIds;
+        int nicknameCount = columns.nicknameCount;
+        if (columns.size < PARALLEL_THRESHOLD) {
+            return sumByNickname(prices, ids, 0, columns.size, nicknameCount);
+        }
+
+        // 구간마다 따로 합계를 낸 뒤 합친다.
+        int chunks = (columns.size + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> sumByNickname(prices, ids, chunk * PARALLEL_CHUNK,
+                        Math.min(columns.size, (chunk + 1) * PARALLEL_CHUNK), nicknameCount))
+                .reduce((left, right) -> {
+                    for (int i = 0; i < left.length; i++) {
+                        left[i] += right[i];
+                    }
+                    return left;
+                })
+                .orElseGet(() -> new long[nicknameCount]);
+    }
+
+    private static long[] sumByNickname(int[] prices, int[] ids, int from, int to, int nicknameCount) {
+        long[] totals = new long[nicknameCount];
+        for (int i = from; i < to; i++) {
+            totals[ids[i]] += prices[i];
+        }
+        return totals;
+    }
+
+    private int encode(int nicknameId) {
+        if (nicknameId >= localIds.length) {
+            localIds = Arrays.copyOf(localIds, Math.max(nicknameId + 1, localIds.length * 2));
+        }
+        int id = localIds[nicknameId] - 1;
+        if (id < 0) {
+            if (nicknameCount == nicknames.length) {
+                nicknames = Arrays.copyOf(nicknames, nicknameCount * 2);
+            }
+            id = nicknameCount;
+            nicknames[nicknameCount++] = NicknameDictionary.INSTANCE.nickname(nicknameId);
+            localIds[nicknameId] = id + 1;
+        }
+        return id;
+    }
+
+    synchronized Columns snapshot() {
+        return new Columns(prices, nicknameIds, size, nicknames, nicknameCount);
+    }
+
+    static class Columns {
+        final int[] prices;
+        final int[] nicknameIds;
+        final int size;
+        final String[] nicknames;
+        final int nicknameCount;
+
+        Columns(int[] prices, int[] nicknameIds, int size, String[] nicknames, int nicknameCount) {
+            this.prices = prices;
+            this.nicknameIds = nicknameIds;
+            this.size = size;
+            this.nicknames = nicknames;
+            this.nicknameCount = nicknameCount;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package ka.chapter2.item3.order;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OrderLoadSimulator {
+    // 가상 스레드를 쓸 수 없는 JDK에서 만들 최대 플랫폼 스레드 수
+    private static final int MAX_PLATFORM_THREADS = 256;
+
+    // 저장소 구현을 바꿔 가며 같은 부하를 걸 수 있도록 OrderService의 두 동작만 추린다.
+    public interface Backend {
+        void makeOrder(String nickname, int price);
+
+        List<Order> getOrderList();
+    }
+
+    public static Backend backendOf(OrderService service) {
+        return new Backend() {
+            @Override
+            public void makeOrder(String nickname, int price) {
+                service.makeOrder(nickname, price);
+            }
+
+            @Override
+            public List<Order> getOrderList() {
+                return service.getOrderList();
+            }
+        };
+    }
+
+    private final int threads;
+    private final int operationsPerThread;
+    private final double writeRatio;
+    private final int readSize;
+    private final String[] nicknames;
+    private final double[] cumulative;
+
+    public static class Builder {
+        private int threads = 1000;
+        private int operationsPerThread = 100;
+        private double writeRatio = 0.5;
+        private int readSize = 100;
+        private int users = 50_000;
+        private double skew = 0;
+
+        public Builder threads(int val) {
+            threads = val;
+            return this;
+        }
+
+        public Builder operationsPerThread(int val) {
+            operationsPerThread = val;
+            return this;
+        }
+
+        // 전체 요청 중 makeOrder의 비율 (0 ~ 1)
+        public Builder writeRatio(double val) {
+            writeRatio = val;
+            return this;
+        }
+
+        // 읽기 한 번에 실제로 꺼내 보는 최근 주문 수. 목록 화면의 첫 페이지처럼 뷰의 원소를 하나씩 읽는다.
+        public Builder readSize(int val) {
+            readSize = val;
+            return this;
+        }
+
+        public Builder users(int val) {
+            users = val;
+            return this;
+        }
+
+        // Zipf 분포 지수. 0이면 모든 사용자가 고르게, 클수록 소수 사용자에게 몰린다.
+        public Builder skew(double val) {
+            skew = val;
+            return this;
+        }
+
+        public OrderLoadSimulator build() {
+            if (threads < 1 || operationsPerThread < 1 || users < 1 || readSize < 1) {
+                throw new IllegalArgumentException("threads, operationsPerThread, users and readSize must be positive");
+            }
+            if (writeRatio < 0 || writeRatio > 1 || skew < 0) {
+                throw new IllegalArgumentException("writeRatio must be between 0 and 1 and skew must not be negative");
+            }
+            return new OrderLoadSimulator(this);
+        }
+    }
+
+    private OrderLoadSimulator(Builder builder) {
+        threads = builder.threads;
+        operationsPerThread = builder.operationsPerThread;
+        writeRatio = builder.writeRatio;
+        readSize = builder.readSize;
+        nicknames = new String[builder.users];
+        cumulative = new double[builder.users];
+        double sum = 0;
+        for (int i = 0; i < builder.users; i++) {
+            nicknames[i] = "user" + i;
+            sum += 1.0 / Math.pow(i + 1, builder.skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < builder.users; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public Report run(Backend backend) throws InterruptedException {
+        LatencyHistogram writes = new LatencyHistogram();
+        LatencyHistogram reads = new LatencyHistogram();
+        LongAdder ordersRead = new LongAdder();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        boolean virtual = supportsVirtualThreads();
+
+        ExecutorService executor = newExecutor(virtual);
+        long elapsed;
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        ready.countDown();
+                        start.await();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        long read = 0;
+                        for (int i = 0; i < operationsPerThread; i++) {
+                            String nickname = nicknames[pickUser(random.nextDouble())];
+                            boolean write = random.nextDouble() < writeRatio;
+                            long begin = System.nanoTime();
+                            if (write) {
+                                backend.makeOrder(nickname, random.nextInt(100_000));
+                                writes.record(System.nanoTime() - begin);
+                            } else {
+                                // 목록은 뷰만 만들고 바로 돌아오므로, 원소를 꺼내 봐야 읽기 비용이 잡힌다.
+                                List<Order> orders = backend.getOrderList();
+                                int size = orders.size();
+                                for (int index = Math.max(0, size - readSize); index < size; index++) {
+                                    if (orders.get(index) != null) {
+                                        read++;
+                                    }
+                                }
+                                reads.record(System.nanoTime() - begin);
+                            }
+                        }
+                        ordersRead.add(read);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            // 플랫폼 스레드 풀은 작업 수보다 스레드가 적을 수 있으므로 모두 준비될 때까지 기다리지 않는다.
+            if (virtual) {
+                ready.await();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            elapsed = System.nanoTime() - begin;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("load simulation failed", failure.get());
+        }
+        return new Report(virtual, threads, elapsed, writes, reads, ordersRead.sum());
+    }
+
+    private int pickUser(double value) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private ExecutorService newExecutor(boolean virtual) {
+        if (virtual) {
+            try {
+                // JDK 21 이상 : Executors.newVirtualThreadPerTaskExecutor()
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return Executors.newFixedThreadPool(Math.min(threads, MAX_PLATFORM_THREADS));
+    }
+
+    static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static class Report {
+        private final boolean virtualThreads;
+        private final int threads;
+        private final long elapsedNanos;
+        private final LatencyHistogram writes;
+        private final LatencyHistogram reads;
+        private final long ordersRead;
+
+        Report(boolean virtualThreads, int threads, long elapsedNanos, LatencyHistogram writes, LatencyHistogram reads, long ordersRead) {
+            this.virtualThreads = virtualThreads;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            this.writes = writes;
+            this.reads = reads;
+            this.ordersRead = ordersRead;
+        }
+
+        public long getOperations() {
+            return writes.count() + reads.count();
+        }
+
+        public double getThroughput() {
+            return getOperations() / (elapsedNanos / 1e9);
+        }
+
+        public LatencyHistogram getWrites() {
+            return writes;
+        }
+
+        public LatencyHistogram getReads() {
+            return reads;
+        }
+
+        // 읽기 요청들이 꺼내 본 주문 수의 합
+        public long getOrdersRead() {
+            return ordersRead;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "threads=" + threads + (virtualThreads ? " (virtual)" : " (platform)") +
+                    ", operations=" + getOperations() +
+                    ", throughput=" + (long) getThroughput() + " ops/s" +
+                    ", makeOrder=" + latency(writes) +
+                    ", getOrderList=" + latency(reads) +
+                    ", ordersRead=" + ordersRead +
+                    '}';
+        }
+
+        private static String latency(LatencyHistogram histogram) {
+            return "[p50=" + histogram.percentile(50) / 1000.0 + "us" +
+                    ", p99=" + histogram.percentile(99) / 1000.0 + "us" +
+                    ", p999=" + histogram.percentile(99.9) / 1000.0 + "us]";
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package ka.chapter2.item3.order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+public class OrderLog implements AutoCloseable {
+
+    public enum Durability {
+        // 레코드는 64KB 버퍼가 찰 때까지 프로세스 메모리에 머문다. 파일 쓰기는 버퍼가 차거나 sync/close 때, fsync는 sync/close 때만 한다.
+        NONE,
+        // 백그라운드에서 주기적으로 fsync 한다. 장애 시 마지막 주기만큼 유실될 수 있다.
+        ASYNC,
+        // fsync가 끝난 뒤에 append가 반환된다. 동시에 들어온 주문은 한 번의 fsync로 묶는다.
+        SYNC
+    }
+
+    // 파일 구조 : MAGIC(int) | 기준 오프셋(long) | 레코드 ...
+    // 레코드의 논리 오프셋 = 기준 오프셋 + (파일 위치 - 헤더 크기). 압축으로 앞부분을 잘라내도 논리 오프셋은 바뀌지 않는다.
+    // 레코드 구조 : 길이(int) | CRC32(int) | 닉네임 길이(short, null이면 -1) | 닉네임(UTF-8) | 가격(int)
+    static final int MAGIC = 0x4F4C4F47;
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_PAYLOAD_BYTES = Short.BYTES + Short.MAX_VALUE + Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAX_MAPPING = 1L << 30;
+    private static final long ASYNC_INTERVAL_MILLIS = 10;
+
+    private final Path path;
+    private final Durability durability;
+    private final ScheduledExecutorService syncer;
+    private ScheduledExecutorService compactor;
+
+    // appendLock : 레코드를 pending 버퍼에 쌓는 구간
+    private final Object appendLock = new Object();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appendedSeq;
+    private boolean closed;
+
+    // flushLock : 쌓인 버퍼를 파일에 쓰고 fsync 하는 구간 (한 번에 한 스레드만 리더가 된다)
+    private final Object flushLock = new Object();
+    // 압축 때 새 파일로 바뀌므로 flushLock 안에서만 바꾼다.
+    private volatile FileChannel channel;
+    private volatile long baseOffset;
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile long writtenSeq;
+    private volatile long durableSeq;
+
+    // 압축은 한 번에 하나만 실행한다.
+    private final Object compactLock = new Object();
+
+    // 백그라운드 fsync에서 난 첫 오류. 기록되면 이후 append/sync는 모두 실패한다.
+    private volatile IOException failure;
+    // 마지막 주기 압축의 오류. 스냅샷을 못 쓴 것은 쓰기 유실이 아니므로 로그는 계속 쓰고, 다음 주기에 다시 시도한다.
+    private volatile IOException compactionFailure;
+
+    private OrderLog(Path path, FileChannel channel, long baseOffset, Durability durability) {
+        this.path = path;
+        this.channel = channel;
+        this.baseOffset = baseOffset;
+        this.durability = durability;
+        if (durability == Durability.ASYNC) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(() -> {
+                try {
+                    sync();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }, ASYNC_INTERVAL_MILLIS, ASYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    public static OrderLog open(Path path, Durability durability) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long baseOffset = 0;
+            if (channel.size() == 0) {
+                writeHeader(channel, baseOffset);
+                channel.force(true);
+            } else {
+                baseOffset = readBaseOffset(channel);
+            }
+
+            // 쓰다가 끊긴 마지막 레코드는 잘라낸다.
+            long end = scan(channel, HEADER_BYTES, channel.size(), null);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+            return new OrderLog(path, channel, baseOffset, durability);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void append(Order order) throws IOException {
+        checkFailure();
+        long seq;
+        boolean full;
+        synchronized (appendLock) {
+            ensureOpen();
+            encode(order);
+            seq = ++appendedSeq;
+            full = pending.position() >= BUFFER_SIZE;
+        }
+        afterAppend(seq, full);
+    }
+
+    public void appendAll(List<Order> orders) throws IOException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        checkFailure();
+        long seq;
+        boolean full;
+        synchronized (appendLock) {
+            ensureOpen();
+            for (Order order : orders) {
+                encode(order);
+            }
+            appendedSeq += orders.size();
+            seq = appendedSeq;
+            full = pending.position() >= BUFFER_SIZE;
+        }
+        afterAppend(seq, full);
+    }
+
+    // 지금까지 append된 레코드를 모두 디스크에 내린다.
+    public void sync() throws IOException {
+        checkFailure();
+        long seq;
+        synchronized (appendLock) {
+            seq = appendedSeq;
+        }
+        flush(seq, true);
+    }
+
+    // 로그에 남아 있는 주문을 순서대로 다시 적용한다. 읽기는 메모리 매핑으로 한다.
+    public long replay(Consumer<Order> consumer) throws IOException {
+        return replayFrom(0, consumer);
+    }
+
+    // 논리 오프셋 fromOffset 이후의 주문만 다시 적용한다.
+    public long replayFrom(long fromOffset, Consumer<Order> consumer) throws IOException {
+        long[] count = new long[1];
+        synchronized (flushLock) {
+            // 아직 버퍼에만 있는 레코드도 읽을 수 있도록 먼저 파일에 쓴다.
+            sync();
+            long from = HEADER_BYTES + Math.max(0, fromOffset - baseOffset);
+            scan(channel, from, channel.size(), order -> {
+                consumer.accept(order);
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    // 스냅샷을 읽은 뒤 스냅샷 이후의 로그만 다시 적용한다. 복구 시간은 로그 꼬리 길이에만 비례한다.
+    public long recover(Path snapshot, Consumer<Order> consumer) throws IOException {
+        long[] count = new long[1];
+        long coveredOffset = OrderSnapshot.load(snapshot, order -> {
+            consumer.accept(order);
+            count[0]++;
+        });
+        return count[0] + replayFrom(coveredOffset, consumer);
+    }
+
+    // 지금까지의 로그를 스냅샷에 합치고, 스냅샷에 들어간 앞부분을 로그에서 잘라낸다.
+    public void compact(Path snapshot) throws IOException {
+        synchronized (compactLock) {
+            compactLocked(snapshot);
+        }
+    }
+
+    private void compactLocked(Path snapshot) throws IOException {
+        FileChannel current;
+        long base;
+        long cut;
+        synchronized (flushLock) {
+            sync();
+            current = channel;
+            base = baseOffset;
+            cut = current.size();
+        }
+        long cutOffset = base + (cut - HEADER_BYTES);
+
+        // 스냅샷은 쓰기를 막지 않고 만든다. [헤더, cut) 구간은 이미 fsync 되어 바뀌지 않는다.
+        OrderColumnStore columns = new OrderColumnStore();
+        long coveredOffset = OrderSnapshot.load(snapshot, columns::append);
+        scan(current, HEADER_BYTES + Math.max(0, coveredOffset - base), cut, columns::append);
+        OrderSnapshot.write(snapshot, cutOffset, columns);
+
+        // 스냅샷 교체 후 여기서 장애가 나도, 복구는 스냅샷 오프셋 이후의 레코드만 읽으므로 중복 적용되지 않는다.
+        synchronized (flushLock) {
+            sync();
+            FileChannel old = channel;
+            Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "orders", ".log.tmp");
+            try (FileChannel rewritten = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeHeader(rewritten, cutOffset);
+                long tail = old.size() - cut;
+                for (long copied = 0; copied < tail; ) {
+                    copied += old.transferTo(cut + copied, tail - copied, rewritten);
+                }
+                rewritten.force(true);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            FileChannel reopened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            reopened.position(reopened.size());
+            channel = reopened;
+            baseOffset = cutOffset;
+            old.close();
+        }
+    }
+
+    // 주기적으로 compact를 실행한다.
+    public synchronized void startCompaction(Path snapshot, long interval, TimeUnit unit) {
+        if (compactor != null) {
+            throw new IllegalStateException("compaction is already running");
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-log-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact(snapshot);
+                compactionFailure = null;
+            } catch (IOException e) {
+                compactionFailure = e;
+            }
+        }, interval, interval, unit);
+    }
+
+    // 마지막 주기 압축이 실패했으면 그 오류, 성공했거나 아직 실행 전이면 null
+    public IOException getCompactionFailure() {
+        return compactionFailure;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public long getBaseOffset() {
+        return baseOffset;
+    }
+
+    // 다음에 쓰일 레코드의 논리 오프셋
+    public long getEndOffset() throws IOException {
+        synchronized (flushLock) {
+            sync();
+            return baseOffset + (channel.size() - HEADER_BYTES);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // FileChannel은 인터럽트되면 닫히므로, 백그라운드 스레드는 인터럽트하지 않고 하던 일을 마칠 때까지 기다린다.
+        if (syncer != null) {
+            stop(syncer);
+        }
+        synchronized (this) {
+            if (compactor != null) {
+                stop(compactor);
+            }
+        }
+        synchronized (flushLock) {
+            synchronized (appendLock) {
+                if (closed) {
+                    return;
+                }
+            }
+            // 이미 실패한 로그라도 파일은 닫고, 오류는 호출한 쪽에 알린다.
+            try {
+                sync();
+            } finally {
+                synchronized (appendLock) {
+                    closed = true;
+                }
+                channel.close();
+            }
+        }
+    }
+
+    private static void stop(ScheduledExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void afterAppend(long seq, boolean full) throws IOException {
+        if (durability == Durability.SYNC) {
+            flush(seq, true);
+        } else if (full) {
+            flush(seq, false);
+        }
+    }
+
+    private void flush(long seq, boolean force) throws IOException {
+        if ((force ? durableSeq : writtenSeq) >= seq) {
+            return;
+        }
+        // 앞선 리더가 fsync 하는 동안 쌓인 레코드는 다음 리더가 한 번에 쓴다(그룹 커밋).
+        synchronized (flushLock) {
+            if ((force ? durableSeq : writtenSeq) >= seq) {
+                return;
+            }
+            ByteBuffer batch;
+            long upTo;
+            synchronized (appendLock) {
+                ensureOpen();
+                batch = pending;
+                upTo = appendedSeq;
+                pending = spare;
+            }
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            batch.clear();
+            spare = batch.capacity() > BUFFER_SIZE * 16 ? ByteBuffer.allocate(BUFFER_SIZE) : batch;
+            writtenSeq = upTo;
+            if (force) {
+                channel.force(false);
+                durableSeq = upTo;
+            }
+        }
+    }
+
+    private void encode(Order order) {
+        byte[] nickname = order.getNickname() == null ? null : order.getNickname().getBytes(StandardCharsets.UTF_8);
+        if (nickname != null && nickname.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("nickname is too long: " + nickname.length + " bytes");
+        }
+        int payload = Short.BYTES + (nickname == null ? 0 : nickname.length) + Integer.BYTES;
+        ensureCapacity(RECORD_HEADER_BYTES + payload);
+
+        int start = pending.position();
+        pending.putInt(payload);
+        pending.putInt(0);
+        pending.putShort((short) (nickname == null ? -1 : nickname.length));
+        if (nickname != null) {
+            pending.put(nickname);
+        }
+        pending.putInt(order.getPrice());
+
+        crc.reset();
+        crc.update(pending.array(), start + RECORD_HEADER_BYTES, payload);
+        pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new IOException("order log failed in background", cause);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("order log is closed");
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, long baseOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(baseOffset).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    static long readBaseOffset(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                break;
+            }
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("not an order log file");
+        }
+        return header.getLong();
+    }
+
+    // [from, size)의 레코드를 읽고, 마지막으로 온전한 레코드가 끝나는 위치를 돌려준다.
+    static long scan(FileChannel channel, long from, long size, Consumer<Order> consumer) throws IOException {
+        CRC32 checksum = new CRC32();
+        long position = from;
+        long windowStart = 0;
+        MappedByteBuffer window = null;
+
+        while (position + RECORD_HEADER_BYTES <= size) {
+            if (window == null || position + RECORD_HEADER_BYTES > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(MAX_MAPPING, size - windowStart));
+            }
+            int length = window.getInt((int) (position - windowStart));
+            if (length < Short.BYTES + Integer.BYTES || length > MAX_PAYLOAD_BYTES
+                    || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            if (position + RECORD_HEADER_BYTES + length > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(MAX_MAPPING, size - windowStart));
+            }
+
+            int offset = (int) (position - windowStart);
+            int expectedCrc = window.getInt(offset + Integer.BYTES);
+            ByteBuffer payload = window.slice(offset + RECORD_HEADER_BYTES, length);
+            checksum.reset();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != expectedCrc) {
+                break;
+            }
+            if (consumer != null) {
+                consumer.accept(decode(window, offset + RECORD_HEADER_BYTES, length));
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static Order decode(ByteBuffer buffer, int offset, int length) {
+        short nicknameLength = buffer.getShort(offset);
+        String nickname = null;
+        if (nicknameLength >= 0) {
+            if (Short.BYTES + nicknameLength + Integer.BYTES != length) {
+                throw new UncheckedIOException(new IOException("corrupted order record"));
+            }
+            byte[] bytes = new byte[nicknameLength];
+            buffer.get(offset + Short.BYTES, bytes);
+            nickname = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int price = buffer.getInt(offset + length - Integer.BYTES);
+        return new Order(nickname, price);
+    }
+}
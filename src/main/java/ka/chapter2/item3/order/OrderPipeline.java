@@ -0,0 +1,170 @@
+package ka.chapter2.item3.order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class OrderPipeline implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+    private static final int SPINS = 100;
+
+    // 여러 생산자, 하나의 소비자를 위한 고정 크기 링 버퍼.
+    // sequences[i] == pos 이면 빈 칸, pos + 1 이면 pos번째 주문이 들어 있는 칸이다.
+    private final AtomicReferenceArray<PendingOrder> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final int maxBatch;
+    // 배치는 재사용하므로 sink는 전달받은 리스트를 보관하면 안 된다.
+    private final Consumer<List<Order>> sink;
+    private final Thread consumer;
+    private volatile boolean consumerWaiting;
+    private volatile boolean closed;
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    public OrderPipeline(int capacity, Consumer<List<Order>> sink) {
+        this(capacity, DEFAULT_MAX_BATCH, sink);
+    }
+
+    public OrderPipeline(int capacity, int maxBatch, Consumer<List<Order>> sink) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.maxBatch = maxBatch;
+        this.sink = Objects.requireNonNull(sink);
+        this.consumer = new Thread(this::consume, "order-pipeline");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    // 버퍼가 가득 차 있으면 빈 칸이 생길 때까지 호출한 스레드를 기다리게 한다(배압).
+    public CompletableFuture<Order> submit(Order order) {
+        Objects.requireNonNull(order);
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("order pipeline is closed"));
+            }
+            PendingOrder pending = new PendingOrder(order);
+            int spins = 0;
+            while (true) {
+                long position = tail.get();
+                int index = (int) position & mask;
+                long sequence = sequences.get(index);
+                if (sequence == position) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.set(index, pending);
+                        sequences.set(index, position + 1);
+                        break;
+                    }
+                } else if (sequence < position) {
+                    // 가득 참
+                    if (++spins < SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                    }
+                }
+            }
+            if (consumerWaiting) {
+                LockSupport.unpark(consumer);
+            }
+            return pending;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // 이미 받은 주문은 모두 처리한 뒤 소비자 스레드를 끝낸다.
+    // 기다리는 중에 인터럽트되면 인터럽트 상태만 되돌리고 바로 돌아온다.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        List<Order> batch = new ArrayList<>(maxBatch);
+        List<PendingOrder> futures = new ArrayList<>(maxBatch);
+        while (true) {
+            while (batch.size() < maxBatch) {
+                int index = (int) head & mask;
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+                PendingOrder pending = slots.get(index);
+                slots.set(index, null);
+                sequences.set(index, head + mask + 1);
+                head++;
+                batch.add(pending.order);
+                futures.add(pending);
+            }
+
+            if (!batch.isEmpty()) {
+                apply(batch, futures);
+            } else if (closed && submitting.get() == 0 && head == tail.get()) {
+                return;
+            } else {
+                consumerWaiting = true;
+                if (sequences.get((int) head & mask) != head + 1 && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                consumerWaiting = false;
+            }
+        }
+    }
+
+    private void apply(List<Order> batch, List<PendingOrder> futures) {
+        try {
+            sink.accept(batch);
+            for (PendingOrder future : futures) {
+                future.complete(future.order);
+            }
+        } catch (RuntimeException | Error e) {
+            for (PendingOrder future : futures) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            batch.clear();
+            futures.clear();
+        }
+    }
+
+    // 주문과 결과를 한 객체에 담아 제출마다 할당을 하나로 줄인다.
+    private static class PendingOrder extends CompletableFuture<Order> {
+        private final Order order;
+
+        PendingOrder(Order order) {
+            this.order = order;
+        }
+    }
+}
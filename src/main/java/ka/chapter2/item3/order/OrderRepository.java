@@ -1,21 +1,140 @@
 package ka.chapter2.item3.order;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
 public class OrderRepository {
     public static final OrderRepository INSTANCE = new OrderRepository();
-    private final List<Order> orderList;
+
+    private final ChunkedOrderStore orders;
+    private final ConcurrentMap<String, Bucket> nicknameIndex = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Integer, Bucket> priceIndex = new ConcurrentSkipListMap<>();
+    // 집계용 열 저장소는 save마다 락을 잡지 않도록 집계할 때 밀린 주문을 한 번에 옮긴다.
+    private final OrderColumnStore columns = new OrderColumnStore();
     private OrderRepository(){
-        orderList = new LinkedList<>();
+        orders = new ChunkedOrderStore();
     }
 
     public void save(Order order) {
-        orderList.add(order);
+        orders.add(order);
+        if (order.getNickname() != null) {
+            index(nicknameIndex, order.getNickname(), order);
+        }
+        index(priceIndex, order.getPrice(), order);
+    }
+
+    // 작은 목록은 복사해 늘린 목록으로 바꿔 끼우고, 다른 스레드가 먼저 바꿨으면 다시 시도한다. 커진 목록에는 바로 붙인다.
+    // ConcurrentSkipListMap.compute는 함수를 여러 번 부를 수 있으므로 compute 대신 replace로 바꾼다.
+    private static <K> void index(ConcurrentMap<K, Bucket> index, K key, Order order) {
+        while (true) {
+            Bucket bucket = index.get(key);
+            if (bucket == null) {
+                if (index.putIfAbsent(key, new Bucket(order)) == null) {
+                    return;
+                }
+            } else if (bucket.large != null) {
+                bucket.large.add(order);
+                return;
+            } else if (index.replace(key, bucket, bucket.with(order))) {
+                return;
+            }
+        }
     }
 
     public List<Order> findAllOrder() {
-        return orderList;
+        return orders.toList();
+    }
+
+    // O(1) + k. 닉네임이 없는 주문은 인덱스에 넣지 않는다.
+    public List<Order> findByNickname(String nickname) {
+        if (nickname == null) {
+            return List.of();
+        }
+        Bucket found = nicknameIndex.get(nickname);
+        return found == null ? List.of() : found.toList();
+    }
+
+    // O(log n) + k, 가격 오름차순
+    public List<Order> findByPriceBetween(int minPrice, int maxPrice) {
+        if (minPrice > maxPrice) {
+            return List.of();
+        }
+        List<Order> result = new ArrayList<>();
+        for (Bucket found : priceIndex.subMap(minPrice, true, maxPrice, true).values()) {
+            found.forEach(result::add);
+        }
+        return result;
+    }
+
+    public long sumPrice() {
+        columns.catchUp(orders);
+        return columns.sumPrice();
+    }
+
+    public Map<String, Long> sumPriceByNickname() {
+        columns.catchUp(orders);
+        return columns.sumPriceByNickname();
+    }
+
+    public List<Map.Entry<String, Long>> findTopSpenders(int n) {
+        columns.catchUp(orders);
+        return columns.topSpenders(n);
+    }
+
+    // 인덱스 키 하나의 주문 목록. 가격과 닉네임은 종류가 많고 키마다 주문은 몇 개뿐이므로 처음에는 배열 하나로 두고,
+    // SMALL_LIMIT개를 넘으면 ChunkedOrderStore로 옮긴다. 작은 목록은 바뀌지 않으므로 읽는 쪽은 잠그지 않는다.
+    private static final class Bucket {
+        private static final int SMALL_LIMIT = 16;
+        private static final int LARGE_CHUNK_BITS = 5;
+
+        private final Order[] small;
+        private final ChunkedOrderStore large;
+
+        Bucket(Order order) {
+            this(new Order[]{order}, null);
+        }
+
+        private Bucket(Order[] small, ChunkedOrderStore large) {
+            this.small = small;
+            this.large = large;
+        }
+
+        // 이 목록에 order를 더한 새 목록. 이 목록은 바꾸지 않는다.
+        Bucket with(Order order) {
+            if (small.length < SMALL_LIMIT) {
+                Order[] grown = Arrays.copyOf(small, small.length + 1);
+                grown[small.length] = order;
+                return new Bucket(grown, null);
+            }
+            ChunkedOrderStore store = new ChunkedOrderStore(LARGE_CHUNK_BITS);
+            for (Order stored : small) {
+                store.add(stored);
+            }
+            store.add(order);
+            return new Bucket(null, store);
+        }
+
+        List<Order> toList() {
+            return large != null ? large.toList() : Collections.unmodifiableList(Arrays.asList(small));
+        }
+
+        void forEach(Consumer<? super Order> action) {
+            if (large != null) {
+                large.forEach(action);
+                return;
+            }
+            for (Order order : small) {
+                action.accept(order);
+            }
+        }
     }
 
 }
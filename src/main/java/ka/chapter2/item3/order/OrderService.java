@@ -1,19 +1,79 @@
 package ka.chapter2.item3.order;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class OrderService {
     public static final OrderService INSTANCE = new OrderService();
     private final OrderRepository repository = OrderRepository.INSTANCE;
+    private volatile OrderLog log;
     private OrderService(){}
 
+    // 비동기 주문을 처음 받을 때 파이프라인(소비자 스레드)을 만든다.
+    private static class PipelineHolder {
+        private static final OrderPipeline PIPELINE = new OrderPipeline(1 << 16, INSTANCE::saveAll);
+    }
+
     public void makeOrder(String nickname, int price) {
-        repository.save(new Order(nickname, price));
+        Order order = new Order(nickname, price);
+        OrderLog log = this.log;
+        if (log != null) {
+            try {
+                log.append(order);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        repository.save(order);
+    }
+
+    // 요청 스레드는 주문을 버퍼에 넣고 바로 반환한다. 저장은 파이프라인 스레드가 묶어서 처리한다.
+    public CompletableFuture<Order> makeOrderAsync(String nickname, int price) {
+        return PipelineHolder.PIPELINE.submit(new Order(nickname, price));
+    }
+
+    private void saveAll(List<Order> orders) {
+        OrderLog log = this.log;
+        if (log != null) {
+            try {
+                log.appendAll(orders);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        for (Order order : orders) {
+            repository.save(order);
+        }
+    }
+
+    // 로그에 남은 주문을 저장소에 다시 적용한 뒤, 이후 주문부터 로그에 기록한다.
+    public long recover(OrderLog log) throws IOException {
+        long replayed = log.replay(repository::save);
+        this.log = log;
+        return replayed;
+    }
+
+    // 스냅샷을 먼저 읽고 스냅샷 이후의 로그만 다시 적용한다.
+    public long recover(OrderLog log, Path snapshot) throws IOException {
+        long recovered = log.recover(snapshot, repository::save);
+        this.log = log;
+        return recovered;
     }
 
     public List<Order> getOrderList() {
         return repository.findAllOrder();
     }
 
+    public List<Order> getOrderListByNickname(String nickname) {
+        return repository.findByNickname(nickname);
+    }
+
+    public List<Order> getOrderListByPriceBetween(int minPrice, int maxPrice) {
+        return repository.findByPriceBetween(minPrice, maxPrice);
+    }
+
 }
@@ -2,6 +2,27 @@ package ka.chapter2.item3.order;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class OrderServiceTest {
 
     @Test
@@ -13,4 +34,522 @@ public class OrderServiceTest {
         System.out.println(instance.getOrderList());
 
     }
+
+    @Test
+    void concurrentOrderTest() throws InterruptedException {
+        OrderService instance = OrderService.INSTANCE;
+        int before = instance.getOrderList().size();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            String nickname = "user" + t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    instance.makeOrder(nickname, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // LinkedList였다면 동시에 add하면서 주문이 유실되거나 리스트가 깨진다.
+        assertTrue(instance.getOrderList().size() - before == 80_000);
+    }
+
+    @Test
+    void chunkedOrderStoreTest() throws InterruptedException {
+        ChunkedOrderStore store = new ChunkedOrderStore(2);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    store.add(new Order("user", i));
+                }
+            });
+            threads[t].start();
+        }
+
+        // 쓰는 도중에도 읽을 수 있어야 한다.
+        while (store.size() < 100_000) {
+            List<Order> snapshot = store.toList();
+            for (Order order : snapshot) {
+                assertTrue(order != null);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Order> unique = new HashSet<>(store.toList());
+        assertTrue(store.size() == 100_000);
+        assertTrue(unique.size() == 100_000);
+    }
+
+    @Test
+    void unwrittenSlotTest() throws Exception {
+        ChunkedOrderStore store = new ChunkedOrderStore(2);
+        store.add(new Order("user1", 1));
+        // 칸을 받은 뒤 주문을 쓰지 못하고 죽은 스레드
+        Field claimed = ChunkedOrderStore.class.getDeclaredField("claimed");
+        claimed.setAccessible(true);
+        ((AtomicInteger) claimed.get(store)).getAndIncrement();
+        store.add(new Order("user3", 3));
+
+        // 빈 칸 앞까지만 보이고, 읽는 쪽은 기다리지 않는다.
+        assertTrue(store.size() == 1);
+        assertTrue(store.toList().toString().equals("[Order{nickname='user1', price=1}]"));
+    }
+
+    @Test
+    void findOrderTest() throws InterruptedException {
+        OrderService instance = OrderService.INSTANCE;
+        instance.makeOrder("findUser1", 1_000_001);
+        instance.makeOrder("findUser2", 1_000_005);
+        instance.makeOrder("findUser1", 1_000_010);
+        instance.makeOrder("findUser1", 1_000_020);
+
+        List<Order> byNickname = instance.getOrderListByNickname("findUser1");
+        assertTrue(byNickname.size() == 3);
+        for (Order order : byNickname) {
+            assertTrue(order.getNickname().equals("findUser1"));
+        }
+        assertTrue(instance.getOrderListByNickname("nobody").isEmpty());
+
+        List<Order> byPrice = instance.getOrderListByPriceBetween(1_000_005, 1_000_010);
+        assertTrue(byPrice.size() == 2);
+        assertTrue(byPrice.get(0).getPrice() == 1_000_005);
+        assertTrue(byPrice.get(1).getPrice() == 1_000_010);
+        assertTrue(instance.getOrderListByPriceBetween(1_000_010, 1_000_005).isEmpty());
+
+        assertTrue(instance.getOrderListByNickname(null).isEmpty());
+
+        // 목록이 커져 저장 방식이 바뀌어도 여러 스레드가 넣은 주문이 모두 남는다.
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    instance.makeOrder("findUser3", 1_000_100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(instance.getOrderListByNickname("findUser3").size() == 4_000);
+        assertTrue(instance.getOrderListByPriceBetween(1_000_100, 1_000_100).size() == 4_000);
+    }
+
+    @Test
+    void columnStoreTest() {
+        OrderColumnStore columns = new OrderColumnStore();
+        columns.append(new Order("user1", 100));
+        columns.append(new Order("user2", 300));
+        columns.append(new Order("user1", 250));
+        columns.append(new Order("user3", 50));
+
+        assertTrue(columns.sumPrice() == 700);
+        assertTrue(columns.sumPriceByNickname().equals(Map.of("user1", 350L, "user2", 300L, "user3", 50L)));
+        assertTrue(columns.topSpenders(2).equals(List.of(Map.entry("user1", 350L), Map.entry("user2", 300L))));
+    }
+
+    @Test
+    void columnStoreAggregationTest() {
+        OrderColumnStore columns = new OrderColumnStore();
+        List<Order> orders = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 3_000_000; i++) {
+            Order order = new Order("user" + random.nextInt(1000), random.nextInt(100_000));
+            orders.add(order);
+            columns.append(order);
+        }
+
+        long start = System.nanoTime();
+        long expected = 0;
+        for (Order order : orders) {
+            expected += order.getPrice();
+        }
+        System.out.println("sum over objects = " + (System.nanoTime() - start) / 1000 + "us");
+
+        start = System.nanoTime();
+        long sum = columns.sumPrice();
+        System.out.println("sum over column = " + (System.nanoTime() - start) / 1000 + "us");
+
+        start = System.nanoTime();
+        Map<String, Long> byNickname = columns.sumPriceByNickname();
+        System.out.println("group by nickname = " + (System.nanoTime() - start) / 1000 + "us");
+
+        assertTrue(sum == expected);
+        assertTrue(byNickname.values().stream().mapToLong(Long::longValue).sum() == expected);
+        List<Map.Entry<String, Long>> top = columns.topSpenders(10);
+        assertTrue(top.size() == 10);
+        assertTrue(top.get(0).getValue() == byNickname.values().stream().mapToLong(Long::longValue).max().getAsLong());
+    }
+
+    @Test
+    void repositoryAggregationTest() {
+        OrderService instance = OrderService.INSTANCE;
+        long before = OrderRepository.INSTANCE.sumPrice();
+        instance.makeOrder("sumUser", 1234);
+        instance.makeOrder("sumUser", 4321);
+
+        assertTrue(OrderRepository.INSTANCE.sumPrice() - before == 5555);
+        assertTrue(OrderRepository.INSTANCE.sumPriceByNickname().get("sumUser") == 5555L);
+    }
+
+    @Test
+    void orderLogReplayTest() throws Exception {
+        Path file = Files.createTempFile("orders", ".log");
+        try {
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.SYNC)) {
+                log.append(new Order("user1", 100));
+                log.append(new Order("사용자", 200));
+                log.appendAll(List.of(new Order(null, 300), new Order("user2", 400)));
+            }
+
+            // 쓰다가 끊긴 레코드를 흉내낸다.
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 20, 1, 2}));
+            }
+
+            List<String> replayed = new ArrayList<>();
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                log.replay(order -> replayed.add(order.toString()));
+                log.append(new Order("user3", 500));
+            }
+            assertTrue(replayed.equals(List.of(
+                    "Order{nickname='user1', price=100}",
+                    "Order{nickname='사용자', price=200}",
+                    "Order{nickname='null', price=300}",
+                    "Order{nickname='user2', price=400}")));
+
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.ASYNC)) {
+                assertTrue(log.replay(order -> {}) == 5);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void orderLogGroupCommitTest() throws Exception {
+        for (OrderLog.Durability durability : OrderLog.Durability.values()) {
+            Path file = Files.createTempFile("orders", ".log");
+            try {
+                int threads = 16;
+                int perThread = durability == OrderLog.Durability.SYNC ? 2_000 : 50_000;
+                long start = System.nanoTime();
+                try (OrderLog log = OrderLog.open(file, durability)) {
+                    Thread[] writers = new Thread[threads];
+                    for (int t = 0; t < threads; t++) {
+                        writers[t] = new Thread(() -> {
+                            try {
+                                for (int i = 0; i < perThread; i++) {
+                                    log.append(new Order("user", i));
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                        writers[t].start();
+                    }
+                    for (Thread writer : writers) {
+                        writer.join();
+                    }
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.println(durability + " = " + (long) (threads * perThread / seconds) + " orders/s");
+
+                try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                    assertTrue(log.replay(order -> {}) == (long) threads * perThread);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void orderSnapshotTest() throws Exception {
+        Path directory = Files.createTempDirectory("orders");
+        Path file = directory.resolve("orders.log");
+        Path snapshot = directory.resolve("orders.snapshot");
+        try {
+            List<String> expected = new ArrayList<>();
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                for (int round = 0; round < 3; round++) {
+                    for (int i = 0; i < 10_000; i++) {
+                        Order order = new Order(i % 7 == 0 ? null : "user" + (i % 100), round * 10_000 + i);
+                        log.append(order);
+                        expected.add(order.toString());
+                    }
+                    log.compact(snapshot);
+                }
+                // 압축 이후에 쓴 주문은 로그 꼬리에 남는다.
+                for (int i = 0; i < 500; i++) {
+                    Order order = new Order("tail", i);
+                    log.append(order);
+                    expected.add(order.toString());
+                }
+            }
+            assertTrue(Files.size(file) < 500 * 32);
+
+            List<String> recovered = new ArrayList<>();
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                assertTrue(log.getBaseOffset() > 0);
+                assertTrue(log.recover(snapshot, order -> recovered.add(order.toString())) == expected.size());
+            }
+            assertTrue(recovered.equals(expected));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void compactionCrashTest() throws Exception {
+        Path directory = Files.createTempDirectory("orders");
+        Path file = directory.resolve("orders.log");
+        Path snapshot = directory.resolve("orders.snapshot");
+        try {
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                log.append(new Order("user1", 1));
+                log.append(new Order("user2", 2));
+            }
+            // 스냅샷만 쓰고 로그를 자르기 전에 죽은 상황
+            OrderColumnStore columns = new OrderColumnStore();
+            long covered;
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                log.replay(columns::append);
+                covered = log.getEndOffset();
+            }
+            OrderSnapshot.write(snapshot, covered, columns);
+
+            List<Order> recovered = new ArrayList<>();
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                log.append(new Order("user3", 3));
+                log.recover(snapshot, recovered::add);
+            }
+            assertTrue(recovered.toString().equals("[Order{nickname='user1', price=1}, Order{nickname='user2', price=2}, Order{nickname='user3', price=3}]"));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void closeDuringCompactionTest() throws Exception {
+        Path directory = Files.createTempDirectory("orders");
+        Path file = directory.resolve("orders.log");
+        Path snapshot = directory.resolve("orders.snapshot");
+        try {
+            int appended = 0;
+            for (int round = 0; round < 20; round++) {
+                OrderLog log = OrderLog.open(file, OrderLog.Durability.ASYNC);
+                log.startCompaction(snapshot, 1, TimeUnit.MILLISECONDS);
+                for (int i = 0; i < 20_000; i++) {
+                    log.append(new Order("user" + i, i));
+                    appended++;
+                }
+                // 압축이 도는 중에 닫아도 로그 채널이 닫히거나 레코드가 빠지면 안 된다.
+                log.close();
+            }
+
+            long recovered;
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                recovered = log.recover(snapshot, order -> { });
+            }
+            assertTrue(recovered == appended);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void compactionFailureTest() throws Exception {
+        Path directory = Files.createTempDirectory("orders");
+        Path file = directory.resolve("orders.log");
+        // 없는 디렉터리라 스냅샷을 쓸 수 없다.
+        Path snapshot = directory.resolve("missing").resolve("orders.snapshot");
+        try {
+            try (OrderLog log = OrderLog.open(file, OrderLog.Durability.ASYNC)) {
+                log.append(new Order("user1", 1));
+                log.startCompaction(snapshot, 1, TimeUnit.MILLISECONDS);
+                for (int i = 0; i < 1_000 && log.getCompactionFailure() == null; i++) {
+                    Thread.sleep(1);
+                }
+                assertTrue(log.getCompactionFailure() != null);
+
+                // 압축이 실패해도 로그 쓰기는 계속된다.
+                log.append(new Order("user2", 2));
+                log.sync();
+            }
+            try (OrderLog reopened = OrderLog.open(file, OrderLog.Durability.NONE)) {
+                assertTrue(reopened.replay(order -> { }) == 2);
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void makeOrderAsyncTest() {
+        OrderService instance = OrderService.INSTANCE;
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            futures.add(instance.makeOrderAsync("asyncUser", i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertTrue(futures.get(42).join().getPrice() == 42);
+        assertTrue(instance.getOrderListByNickname("asyncUser").size() == 10_000);
+    }
+
+    @Test
+    void orderPipelineBackpressureTest() throws InterruptedException {
+        List<Integer> batchSizes = new ArrayList<>();
+        AtomicInteger saved = new AtomicInteger();
+        OrderPipeline pipeline = new OrderPipeline(8, 4, batch -> {
+            batchSizes.add(batch.size());
+            saved.addAndGet(batch.size());
+            try {
+                // 느린 저장소
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    pipeline.submit(new Order("user", i));
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        pipeline.close();
+
+        assertTrue(saved.get() == 1000);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        assertTrue(pipeline.submit(new Order("user", 0)).isCompletedExceptionally());
+    }
+
+    @Test
+    void loadSimulatorTest() throws InterruptedException {
+        OrderLoadSimulator simulator = new OrderLoadSimulator.Builder()
+                .threads(2_000)
+                .operationsPerThread(50)
+                .writeRatio(0.8)
+                .users(50_000)
+                .skew(1.0)
+                .build();
+
+        OrderLoadSimulator.Report report = simulator.run(OrderLoadSimulator.backendOf(OrderService.INSTANCE));
+        System.out.println(report);
+
+        assertTrue(report.getOperations() == 100_000);
+        LatencyHistogram writes = report.getWrites();
+        assertTrue(writes.percentile(50) <= writes.percentile(99));
+        assertTrue(writes.percentile(99) <= writes.percentile(99.9));
+        // 읽기는 뷰만 받아 오지 않고 최근 주문을 실제로 읽는다.
+        assertTrue(report.getReads().count() > 0);
+        assertTrue(report.getOrdersRead() >= report.getReads().count());
+    }
+
+    @Test
+    void latencyHistogramTest() {
+        LatencyHistogram histogram = new LatencyHistogram(1);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        // 버킷 오차 약 3% 이내
+        assertTrue(Math.abs(histogram.percentile(50) - 500_000) <= 500_000 * 0.04);
+        assertTrue(Math.abs(histogram.percentile(99) - 990_000) <= 990_000 * 0.04);
+        assertTrue(histogram.count() == 1000);
+    }
+
+    @Test
+    void nicknameDictionaryTest() {
+        NicknameDictionary dictionary = new NicknameDictionary();
+        int id = dictionary.intern("sjpark");
+        assertTrue(dictionary.intern(new String("sjpark")) == id);
+        assertTrue(dictionary.intern(null) == NicknameDictionary.NULL_ID);
+        assertTrue(dictionary.nickname(NicknameDictionary.NULL_ID) == null);
+        assertTrue("sjpark".equals(dictionary.nickname(id)));
+
+        Order order = new Order(new String("dictionary-user"), 100);
+        assertTrue("dictionary-user".equals(order.getNickname()));
+        assertTrue(new Order(null, 100).getNickname() == null);
+    }
+
+    @Test
+    void orderHeapTest() {
+        int count = 1_000_000;
+        int users = 50_000;
+
+        // 파싱한 입력처럼 주문마다 새 문자열을 만든다.
+        long before = usedHeap();
+        StringOrder[] stringOrders = new StringOrder[count];
+        for (int i = 0; i < count; i++) {
+            stringOrders[i] = new StringOrder(new String("heap-user" + (i % users)), i);
+        }
+        long stringOrderBytes = usedHeap() - before;
+        stringOrders = null;
+
+        before = usedHeap();
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = new Order(new String("heap-user" + (i % users)), i);
+        }
+        long orderBytes = usedHeap() - before;
+
+        System.out.println("String nickname = " + stringOrderBytes / 1024 / 1024 + "MB per 1M orders");
+        System.out.println("Dictionary id = " + orderBytes / 1024 / 1024 + "MB per 1M orders");
+        assertTrue(orders[count - 1].getNickname().equals("heap-user" + ((count - 1) % users)));
+        assertTrue(orderBytes < stringOrderBytes);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // 사전을 쓰기 전의 Order
+    private static class StringOrder {
+        private final String nickname;
+        private final int price;
+
+        StringOrder(String nickname, int price) {
+            this.nickname = nickname;
+            this.price = price;
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package ka.chapter2.item3.order;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+public class OrderSnapshot {
+    // 파일 구조 : MAGIC(int) | 포함된 로그 오프셋(long) | 주문 수(int) | 닉네임 수(int)
+    //           | 가격 열(int * 주문 수) | 닉네임 번호 열(int * 주문 수) | 닉네임 사전(길이 short, null이면 -1 + UTF-8 ...)
+    static final int MAGIC = 0x4F534E50;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES * 2;
+
+    private OrderSnapshot() {
+        throw new AssertionError();
+    }
+
+    public static void write(Path target, long coveredOffset, OrderColumnStore store) throws IOException {
+        OrderColumnStore.Columns columns = store.snapshot();
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "orders", ".snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(coveredOffset);
+            out.writeInt(columns.size);
+            out.writeInt(columns.nicknameCount);
+            for (int i = 0; i < columns.size; i++) {
+                out.writeInt(columns.prices[i]);
+            }
+            for (int i = 0; i < columns.size; i++) {
+                out.writeInt(columns.nicknameIds[i]);
+            }
+            for (int i = 0; i < columns.nicknameCount; i++) {
+                String nickname = columns.nicknames[i];
+                if (nickname == null) {
+                    out.writeShort(-1);
+                } else {
+                    byte[] bytes = nickname.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        // 새 스냅샷이 완전히 디스크에 내려간 뒤에만 기존 스냅샷을 교체한다.
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 스냅샷의 주문을 순서대로 넘기고, 스냅샷이 포함하는 로그 오프셋을 돌려준다. 파일이 없으면 0.
+    public static long load(Path source, Consumer<Order> consumer) throws IOException {
+        if (!Files.exists(source)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("order snapshot is too large: " + fileSize);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (fileSize < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not an order snapshot file");
+            }
+            long coveredOffset = buffer.getLong(Integer.BYTES);
+            int size = buffer.getInt(Integer.BYTES + Long.BYTES);
+            int nicknameCount = buffer.getInt(Integer.BYTES * 2 + Long.BYTES);
+            int pricesStart = HEADER_BYTES;
+            int idsStart = pricesStart + size * Integer.BYTES;
+            int position = idsStart + size * Integer.BYTES;
+
+            // 같은 닉네임의 주문은 String 객체 하나를 같이 쓴다.
+            String[] nicknames = new String[nicknameCount];
+            for (int i = 0; i < nicknameCount; i++) {
+                short length = buffer.getShort(position);
+                position += Short.BYTES;
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    buffer.get(position, bytes);
+                    nicknames[i] = new String(bytes, StandardCharsets.UTF_8);
+                    position += length;
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                int price = buffer.getInt(pricesStart + i * Integer.BYTES);
+                int id = buffer.getInt(idsStart + i * Integer.BYTES);
+                consumer.accept(new Order(nicknames[id], price));
+            }
+            return coveredOffset;
+        }
+    }
+}
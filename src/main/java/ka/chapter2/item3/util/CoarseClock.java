@@ -0,0 +1,87 @@
+package ka.chapter2.item3.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// 백그라운드 스레드 하나가 정해진 간격마다 읽어 둔 시각을 돌려주는 시계.
+// 같은 간격 안의 호출은 시계를 다시 읽지 않으므로 초 단위 문구처럼 정밀도가 필요 없는 곳에 쓴다.
+public class CoarseClock extends Clock implements AutoCloseable {
+    private final Ticker ticker;
+    private final ZoneId zone;
+
+    public CoarseClock(long resolution, TimeUnit unit) {
+        this(Clock.systemUTC(), resolution, unit);
+    }
+
+    public CoarseClock(Clock source, long resolution, TimeUnit unit) {
+        this(new Ticker(source, unit.toNanos(resolution)), ZoneId.systemDefault());
+    }
+
+    private CoarseClock(Ticker ticker, ZoneId zone) {
+        this.ticker = ticker;
+        this.zone = zone;
+    }
+
+    @Override
+    public long millis() {
+        return ticker.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(ticker.millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    // 시간대만 다른 시계. 같은 스레드를 함께 쓴다.
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new CoarseClock(ticker, zone);
+    }
+
+    public long getResolutionNanos() {
+        return ticker.resolutionNanos;
+    }
+
+    // 스레드를 멈춘다. 이후에는 마지막으로 읽은 시각에 머문다.
+    @Override
+    public void close() {
+        ticker.running = false;
+        LockSupport.unpark(ticker.thread);
+    }
+
+    private static class Ticker implements Runnable {
+        private final Clock source;
+        private final long resolutionNanos;
+        private final Thread thread;
+        private volatile long millis;
+        private volatile boolean running = true;
+
+        Ticker(Clock source, long resolutionNanos) {
+            if (resolutionNanos <= 0) {
+                throw new IllegalArgumentException("resolution must be positive: " + resolutionNanos + "ns");
+            }
+            this.source = source;
+            this.resolutionNanos = resolutionNanos;
+            this.millis = source.millis();
+            this.thread = new Thread(this, "coarse-clock");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                LockSupport.parkNanos(this, resolutionNanos);
+                millis = source.millis();
+            }
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package ka.chapter2.item3.util;
 
 import java.io.Serializable;
-import java.time.Instant;
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
@@ -16,41 +16,56 @@ public class DateTimeUtil implements Serializable {
 
     private static final AtomicInteger counter = new AtomicInteger(1);
 
+    // 모든 스레드가 함께 쓰는 인스턴스. 시계는 시스템 시계로 고정되어 바꿀 수 없으므로 공유해도 안전하고,
+    // 가상 스레드처럼 스레드가 아주 많을 때 스레드마다 인스턴스와 ThreadLocal 항목이 쌓이지 않는다.
+    private static final int SHARED_INSTANCE_NUMBER = 0;
+    private static final DateTimeUtil sharedInstance = new DateTimeUtil(SHARED_INSTANCE_NUMBER);
+
+    public static DateTimeUtil getSharedInstance() {
+        return sharedInstance;
+    }
+
     private final int instanceNumber;
 
+    // 스레드별 인스턴스는 시계를 스레드마다 바꿀 수 있다. 공유 인스턴스는 시스템 시계를 그대로 쓴다.
+    private transient volatile Clock clock = Clock.systemDefaultZone();
+
     private DateTimeUtil() {
-        instanceNumber = counter.getAndIncrement();
+        this(counter.getAndIncrement());
     }
 
-    public void showCurrentTime() {
-        System.out.println("Instance " + instanceNumber + ": " + System.currentTimeMillis());
+    private DateTimeUtil(int instanceNumber) {
+        this.instanceNumber = instanceNumber;
+    }
+
+    // 스레드별 인스턴스는 1부터, 공유 인스턴스는 0
+    public int getInstanceNumber() {
+        return instanceNumber;
     }
 
-    private static final int SEC = 60;
-    private static final int MIN = 60;
-    private static final int HOUR = 24;
-    private static final int DAY = 30;
-    private static final int MONTH = 12;
+    // 지금까지 만들어진 스레드별 인스턴스 수
+    static int getCreatedInstanceCount() {
+        return counter.get() - 1;
+    }
+
+    public void showCurrentTime() {
+        System.out.println("Instance " + instanceNumber + ": " + clock.millis());
+    }
 
     public String getPassedTime(LocalDateTime localDateTime) {
-        Instant instant = localDateTime.atZone(ZoneId.systemDefault()).toInstant();
-        long curTime = System.currentTimeMillis();
-        long regTime = instant.toEpochMilli();
-        long diffTime = (curTime - regTime) / 1000;
-
-        if (diffTime < SEC) {
-            return diffTime + "초 전";
-        } else if ((diffTime /= SEC) < MIN) {
-            return diffTime + "분 전";
-        } else if ((diffTime /= MIN) < HOUR) {
-            return diffTime + "시간 전";
-        } else if ((diffTime /= HOUR) < DAY) {
-            return diffTime + "일 전";
-        } else if ((diffTime /= DAY) < MONTH) {
-            return diffTime + "달 전";
-        } else {
-            return diffTime + "년 전";
+        return PassedTimeFormatter.systemDefault().format(localDateTime, clock.millis());
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public void setClock(Clock clock) {
+        // 공유 인스턴스의 시계를 바꾸면 JVM의 모든 스레드가 영향을 받는다.
+        if (instanceNumber == SHARED_INSTANCE_NUMBER) {
+            throw new UnsupportedOperationException("clock of the shared instance cannot be changed");
         }
+        this.clock = Objects.requireNonNull(clock);
     }
 
     public static Supplier<DateTimeUtil> getDateTimeUtilSupplier() {
@@ -62,6 +77,6 @@ public class DateTimeUtil implements Serializable {
     }
 
     private Object readResolve() {
-        return getInstance();
+        return instanceNumber == SHARED_INSTANCE_NUMBER ? sharedInstance : getInstance();
     }
 }
@@ -0,0 +1,111 @@
+package ka.chapter2.item3.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+// "N초 전", "N분 전" ... 형식의 경과 시간 문구를 만든다.
+public final class PassedTimeFormatter {
+    private static final int SEC = 60;
+    private static final int MIN = 60;
+    private static final int HOUR = 24;
+    private static final int DAY = 30;
+    private static final int MONTH = 12;
+
+    // 매 호출마다 ZoneId.systemDefault()를 찾지 않도록 처음 사용할 때의 기본 시간대를 잡아 둔다.
+    // 실행 중에 기본 시간대를 바꾸는 경우에는 of(ZoneId)로 새로 만든다.
+    private static final PassedTimeFormatter SYSTEM_DEFAULT = new PassedTimeFormatter(ZoneId.systemDefault());
+
+    // 단위 번호(PassedTimeUnit 순서)별 시작 초와 나눌 값
+    private static final PassedTimeUnit[] UNITS = PassedTimeUnit.values();
+    private static final long[] THRESHOLDS = {0, SEC, SEC * MIN, SEC * MIN * HOUR, SEC * MIN * HOUR * DAY, SEC * MIN * HOUR * DAY * MONTH};
+    // 기존 계산과 같게 년 단위도 12로 나누지 않고 달 수를 그대로 쓴다.
+    private static final long[] DIVISORS = {1, SEC, SEC * MIN, SEC * MIN * HOUR, SEC * MIN * HOUR * DAY, SEC * MIN * HOUR * DAY};
+    private static final int BATCH = 512;
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    // 서머타임이 없는 시간대는 규칙 조회 없이 고정 오프셋으로 바꾼다.
+    private final ZoneOffset fixedOffset;
+
+    private PassedTimeFormatter(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+    }
+
+    public static PassedTimeFormatter systemDefault() {
+        return SYSTEM_DEFAULT;
+    }
+
+    public static PassedTimeFormatter of(ZoneId zone) {
+        return zone.equals(SYSTEM_DEFAULT.zone) ? SYSTEM_DEFAULT : new PassedTimeFormatter(zone);
+    }
+
+    public String format(LocalDateTime localDateTime) {
+        return format(toEpochMilli(localDateTime), System.currentTimeMillis());
+    }
+
+    // 여러 항목을 그릴 때는 현재 시각을 한 번만 읽어 넘긴다.
+    public String format(LocalDateTime localDateTime, long nowMillis) {
+        return format(toEpochMilli(localDateTime), nowMillis);
+    }
+
+    public String format(long epochMillis, long nowMillis) {
+        long diffTime = (nowMillis - epochMillis) / 1000;
+
+        if (diffTime < SEC) {
+            return PassedTimeUnit.SECOND.label(diffTime);
+        } else if ((diffTime /= SEC) < MIN) {
+            return PassedTimeUnit.MINUTE.label(diffTime);
+        } else if ((diffTime /= MIN) < HOUR) {
+            return PassedTimeUnit.HOUR.label(diffTime);
+        } else if ((diffTime /= HOUR) < DAY) {
+            return PassedTimeUnit.DAY.label(diffTime);
+        } else if ((diffTime /= DAY) < MONTH) {
+            return PassedTimeUnit.MONTH.label(diffTime);
+        } else {
+            return PassedTimeUnit.YEAR.label(diffTime);
+        }
+    }
+
+    // out[i]에 epochMillis[i]의 문구를 쓴다. PassedTimeUnit 표 범위에서는 항목마다 객체를 만들지 않는다.
+    public void format(long[] epochMillis, long nowMillis, String[] out) {
+        if (out.length < epochMillis.length) {
+            throw new IllegalArgumentException("out is shorter than epochMillis: " + out.length + " < " + epochMillis.length);
+        }
+        int size = Math.min(epochMillis.length, BATCH);
+        long[] seconds = new long[size];
+        int[] units = new int[size];
+        for (int from = 0; from < epochMillis.length; from += BATCH) {
+            int count = Math.min(BATCH, epochMillis.length - from);
+
+            // 분기 없이 단위만 정한다. 연속된 나눗셈((d / 60) / 60 ...)은 양수에서 d / (60 * 60 ...)와 같다.
+            for (int i = 0; i < count; i++) {
+                long diffTime = (nowMillis - epochMillis[from + i]) / 1000;
+                seconds[i] = diffTime;
+                units[i] = (diffTime >= THRESHOLDS[1] ? 1 : 0)
+                        + (diffTime >= THRESHOLDS[2] ? 1 : 0)
+                        + (diffTime >= THRESHOLDS[3] ? 1 : 0)
+                        + (diffTime >= THRESHOLDS[4] ? 1 : 0)
+                        + (diffTime >= THRESHOLDS[5] ? 1 : 0);
+            }
+            for (int i = 0; i < count; i++) {
+                int unit = units[i];
+                out[from + i] = UNITS[unit].label(seconds[i] / DIVISORS[unit]);
+            }
+        }
+    }
+
+    // localDateTime.atZone(zone).toInstant().toEpochMilli()와 같은 값 (서머타임 공백, 중복 구간 포함)
+    public long toEpochMilli(LocalDateTime localDateTime) {
+        ZoneOffset offset = fixedOffset != null ? fixedOffset : rules.getOffset(localDateTime);
+        return localDateTime.toEpochSecond(offset) * 1000 + localDateTime.getNano() / 1_000_000;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+}
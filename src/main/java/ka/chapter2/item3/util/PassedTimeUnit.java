@@ -0,0 +1,32 @@
+package ka.chapter2.item3.util;
+
+// 경과 시간 문구의 단위. 단위마다 자주 나오는 문구를 미리 만들어 같은 객체를 돌려준다.
+public enum PassedTimeUnit {
+    SECOND("초 전", 60),
+    MINUTE("분 전", 60),
+    HOUR("시간 전", 24),
+    DAY("일 전", 30),
+    MONTH("달 전", 12),
+    // 기존 계산은 년 단위에서도 달 수를 그대로 쓰므로(12 이상) 100년치인 1200까지 만들어 둔다.
+    YEAR("년 전", 1200);
+
+    private final String suffix;
+    private final String[] labels;
+
+    PassedTimeUnit(String suffix, int cached) {
+        this.suffix = suffix;
+        this.labels = new String[cached];
+        for (int i = 0; i < cached; i++) {
+            labels[i] = (i + suffix).intern();
+        }
+    }
+
+    // 표 범위를 벗어난 값(음수, 아주 큰 값)만 새 문자열을 만든다.
+    public String label(long value) {
+        return value >= 0 && value < labels.length ? labels[(int) value] : value + suffix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+}
@@ -3,11 +3,20 @@ package ka.chapter2.item3.util;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class UtilTest {
@@ -109,6 +118,267 @@ public class UtilTest {
         assertTrue(original == deserialized);
     }
 
+    @Test
+    void passedTimeFormatterTest() {
+        PassedTimeFormatter formatter = PassedTimeFormatter.systemDefault();
+        long now = System.currentTimeMillis();
+        long[] seconds = {-3_600, -1, 0, 1, 59, 60, 3_599, 3_600, 86_399, 86_400, 2_591_999, 2_592_000, 31_103_999, 31_104_000, 99_999_999};
+        for (long second : seconds) {
+            assertTrue(formatter.format(now - second * 1000, now).equals(legacyPassedTime(now - second * 1000, now)));
+        }
+
+        // 미리 만든 문구는 같은 객체를 돌려준다.
+        assertSame(formatter.format(now - 5_000, now), formatter.format(now - 5_000, now));
+        assertSame(formatter.format(now - 120_000, now), formatter.format(now - 120_000, now));
+        assertTrue(formatter.format(now + 5_000, now).equals("-5초 전"));
+
+        LocalDateTime dateTime = LocalDateTime.now().minusMinutes(2);
+        assertTrue(formatter.format(dateTime, now).equals(legacyPassedTime(dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), now)));
+    }
+
+    @Test
+    void passedTimeFormatterZoneTest() {
+        // 서머타임 공백, 중복 구간에서도 atZone과 같은 시각으로 바꾼다.
+        ZoneId newYork = ZoneId.of("America/New_York");
+        PassedTimeFormatter formatter = PassedTimeFormatter.of(newYork);
+        LocalDateTime[] dateTimes = {
+                LocalDateTime.of(2024, 3, 10, 2, 30),
+                LocalDateTime.of(2024, 11, 3, 1, 30, 15, 999_000_000),
+                LocalDateTime.of(1960, 1, 1, 0, 0, 0, 1_000_000),
+                LocalDateTime.of(2024, 6, 1, 12, 0)
+        };
+        for (LocalDateTime dateTime : dateTimes) {
+            assertTrue(formatter.toEpochMilli(dateTime) == dateTime.atZone(newYork).toInstant().toEpochMilli());
+        }
+
+        ZoneId seoul = ZoneId.of("+09:00");
+        LocalDateTime dateTime = LocalDateTime.of(2024, 6, 1, 12, 0, 0, 123_000_000);
+        assertTrue(PassedTimeFormatter.of(seoul).toEpochMilli(dateTime) == dateTime.atZone(seoul).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void passedTimeFormatterBenchmarkTest() {
+        int count = 1_000_000;
+        LocalDateTime base = LocalDateTime.now();
+        LocalDateTime[] dateTimes = new LocalDateTime[count];
+        for (int i = 0; i < count; i++) {
+            dateTimes[i] = base.minusSeconds(i % 5_000);
+        }
+
+        long begin = System.nanoTime();
+        long length = 0;
+        for (LocalDateTime dateTime : dateTimes) {
+            length += legacyPassedTime(dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), System.currentTimeMillis()).length();
+        }
+        long legacy = System.nanoTime() - begin;
+
+        PassedTimeFormatter formatter = PassedTimeFormatter.systemDefault();
+        begin = System.nanoTime();
+        long now = System.currentTimeMillis();
+        for (LocalDateTime dateTime : dateTimes) {
+            length -= formatter.format(dateTime, now).length();
+        }
+        long cached = System.nanoTime() - begin;
+
+        System.out.println("atZone + concat = " + legacy / 1_000_000 + "ms");
+        System.out.println("PassedTimeFormatter = " + cached / 1_000_000 + "ms");
+        assertTrue(length == 0);
+    }
+
+    @Test
+    void passedTimeUnitTest() {
+        assertSame(PassedTimeUnit.SECOND.label(5), "5초 전");
+        assertSame(PassedTimeUnit.YEAR.label(24), PassedTimeUnit.YEAR.label(24));
+        assertTrue(PassedTimeUnit.YEAR.label(5_000).equals("5000년 전"));
+        assertTrue(PassedTimeUnit.SECOND.label(-1).equals("-1초 전"));
+
+        // 표 범위 안에서는 문구를 새로 만들지 않는다.
+        PassedTimeFormatter formatter = PassedTimeFormatter.systemDefault();
+        long now = System.currentTimeMillis();
+        long[] ages = new long[10_000];
+        for (int i = 0; i < ages.length; i++) {
+            // 50년 안쪽
+            ages[i] = (i * 157_679_999L) % 1_555_200_000_000L;
+        }
+        // 워밍업
+        long length = 0;
+        for (long age : ages) {
+            length += formatter.format(now - age, now).length();
+        }
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = bean.getThreadAllocatedBytes(threadId);
+        for (int round = 0; round < 100; round++) {
+            for (long age : ages) {
+                length += formatter.format(now - age, now).length();
+            }
+        }
+        allocated = bean.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.println("1M formats allocated " + allocated + " bytes");
+        assertTrue(length > 0);
+        assertTrue(allocated < 64 * 1024);
+    }
+
+    @Test
+    void fixedClockTest() {
+        // 고정 시계를 쓰면 실행 시점과 관계없이 결과가 같다.
+        LocalDateTime registered = LocalDateTime.of(2024, 1, 1, 9, 0);
+        Instant now = registered.plusHours(2).plusSeconds(59).atZone(ZoneId.systemDefault()).toInstant();
+        Clock clock = Clock.fixed(now, ZoneId.systemDefault());
+
+        DateTimeUtil util = DateTimeUtil.getInstance();
+        Clock previous = util.getClock();
+        util.setClock(clock);
+        DateUtil.INSTANCE.setClock(clock);
+        try {
+            assertTrue(util.getPassedTime(registered).equals("2시간 전"));
+            assertTrue(DateUtil.INSTANCE.getPassedTime(registered).equals("2시간 전"));
+            assertTrue(util.getPassedTime(registered.plusHours(2).plusSeconds(30)).equals("29초 전"));
+        } finally {
+            util.setClock(previous);
+            DateUtil.INSTANCE.setClock(Clock.systemDefaultZone());
+        }
+    }
+
+    @Test
+    void coarseClockTest() throws InterruptedException {
+        try (CoarseClock clock = new CoarseClock(20, TimeUnit.MILLISECONDS)) {
+            long first = clock.millis();
+            assertTrue(Math.abs(first - System.currentTimeMillis()) < 1_000);
+
+            // 간격 안에서는 같은 값을 돌려주다가 간격이 지나면 갱신된다.
+            long updated = first;
+            for (int i = 0; i < 100 && updated == first; i++) {
+                Thread.sleep(10);
+                updated = clock.millis();
+            }
+            assertTrue(updated > first);
+            assertTrue(clock.withZone(ZoneId.of("UTC")).millis() >= updated);
+        }
+    }
+
+    @Test
+    void sharedInstanceTest() throws InterruptedException {
+        DateTimeUtil shared = DateTimeUtil.getSharedInstance();
+        DateTimeUtil[] fromOtherThread = new DateTimeUtil[1];
+        Thread thread = new Thread(() -> fromOtherThread[0] = DateTimeUtil.getSharedInstance());
+        thread.start();
+        thread.join();
+
+        assertTrue(fromOtherThread[0] == shared);
+        assertTrue(shared.getInstanceNumber() == 0);
+        assertTrue(DateTimeUtil.getInstance().getInstanceNumber() > 0);
+        assertTrue(shared.getPassedTime(LocalDateTime.now().minusMinutes(3)).equals("3분 전"));
+
+        boolean rejected = false;
+        try {
+            shared.setClock(Clock.fixed(Instant.EPOCH, ZoneId.systemDefault()));
+        } catch (UnsupportedOperationException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+        assertTrue(shared.getPassedTime(LocalDateTime.now().minusMinutes(3)).equals("3분 전"));
+
+        String filePath = "sharedDateTimeUtil.ser";
+        serializeToFile(shared, filePath);
+        assertTrue(deserializeFromFile(filePath) == shared);
+        new File(filePath).delete();
+    }
+
+    @Test
+    void sharedInstanceBenchmarkTest() throws Exception {
+        // JDK 21 이상이면 작업마다 가상 스레드를 하나씩 만든다. 그보다 낮으면 플랫폼 스레드를 작업마다 만든다.
+        boolean virtual = supportsVirtualThreads();
+        int tasks = virtual ? 1_000_000 : 20_000;
+        LocalDateTime registered = LocalDateTime.now().minusMinutes(5);
+
+        // 인스턴스를 얻는 데 각 스레드가 할당한 바이트. 지원하지 않는 스레드에서는 -1
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] allocatedBytes = new long[2];
+        for (boolean shared : new boolean[]{false, true}) {
+            LongAdder length = new LongAdder();
+            LongAdder allocated = new LongAdder();
+            int before = DateTimeUtil.getCreatedInstanceCount();
+            long begin = System.nanoTime();
+            runThreadPerTask(virtual, tasks, () -> {
+                long start = bean.getCurrentThreadAllocatedBytes();
+                DateTimeUtil util = shared ? DateTimeUtil.getSharedInstance() : DateTimeUtil.getInstance();
+                long end = bean.getCurrentThreadAllocatedBytes();
+                if (start >= 0 && end >= 0) {
+                    allocated.add(end - start);
+                }
+                length.add(util.getPassedTime(registered).length());
+            });
+            long elapsed = System.nanoTime() - begin;
+            // 스레드별 인스턴스는 스레드가 살아 있는 동안 ThreadLocal 항목과 함께 남는다.
+            int created = DateTimeUtil.getCreatedInstanceCount() - before;
+            allocatedBytes[shared ? 1 : 0] = allocated.sum();
+
+            System.out.println((shared ? "shared" : "ThreadLocal") + (virtual ? " (virtual threads)" : " (platform threads)")
+                    + " : " + tasks * 1_000_000_000L / elapsed + " tasks/s"
+                    + ", instances created = " + created
+                    + ", allocated = " + allocated.sum() / tasks + " bytes/task"
+                    + " (" + allocated.sum() / 1024 + "KB total)");
+            assertTrue(length.sum() == (long) tasks * "5분 전".length());
+            assertTrue(shared ? created == 0 : created == tasks);
+        }
+        if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() && !virtual) {
+            assertTrue(allocatedBytes[1] < allocatedBytes[0]);
+        }
+    }
+
+    private static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static void runThreadPerTask(boolean virtual, int tasks, Runnable task) throws Exception {
+        if (virtual) {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(task);
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            return;
+        }
+        // 플랫폼 스레드는 한 번에 너무 많이 띄우지 않도록 나눠서 실행한다.
+        Thread[] threads = new Thread[1_000];
+        for (int from = 0; from < tasks; from += threads.length) {
+            int count = Math.min(threads.length, tasks - from);
+            for (int i = 0; i < count; i++) {
+                threads[i] = new Thread(task);
+                threads[i].start();
+            }
+            for (int i = 0; i < count; i++) {
+                threads[i].join();
+            }
+        }
+    }
+
+    // PassedTimeFormatter 이전의 계산 방식
+    private static String legacyPassedTime(long regTime, long curTime) {
+        long diffTime = (curTime - regTime) / 1000;
+        if (diffTime < 60) {
+            return diffTime + "초 전";
+        } else if ((diffTime /= 60) < 60) {
+            return diffTime + "분 전";
+        } else if ((diffTime /= 60) < 24) {
+            return diffTime + "시간 전";
+        } else if ((diffTime /= 24) < 30) {
+            return diffTime + "일 전";
+        } else if ((diffTime /= 30) < 12) {
+            return diffTime + "달 전";
+        } else {
+            return diffTime + "년 전";
+        }
+    }
+
     // 객체를 파일에 직렬화하는 메소드
     private static void serializeToFile(Object object, String filePath) {
         try (ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(filePath))) {
@@ -1,7 +1,20 @@
 package ka.chapter2.item4.factory;
 
+import ka.chapter2.item4.util.PassedTimeFormatter;
+
 import java.time.LocalDateTime;
 
 public interface DateTimeProvider {
     String getPassedTime(LocalDateTime localDateTime);
+
+    // 목록을 그릴 때 현재 시각은 한 번만 읽고, 결과는 호출한 쪽 배열에 채운다.
+    default void getPassedTimes(long[] epochMillis, long nowMillis, String[] out) {
+        if (out.length < epochMillis.length) {
+            throw new IllegalArgumentException("out is shorter than epochMillis: " + out.length + " < " + epochMillis.length);
+        }
+        PassedTimeFormatter formatter = PassedTimeFormatter.systemDefault();
+        for (int i = 0; i < epochMillis.length; i++) {
+            out[i] = formatter.format(epochMillis[i], nowMillis);
+        }
+    }
 }
@@ -1,39 +1,30 @@
 package ka.chapter2.item4.factory;
 
-import java.time.Instant;
+import ka.chapter2.item4.util.PassedTimeFormatter;
+
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.Objects;
 
 public class DateTimeProviderImpl implements DateTimeProvider {
-    private static final int SEC = 60;
-    private static final int MIN = 60;
-    private static final int HOUR = 24;
-    private static final int DAY = 30;
-    private static final int MONTH = 12;
+    private final Clock clock;
+
+    public DateTimeProviderImpl() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public DateTimeProviderImpl(Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
 
     @Override
     public String getPassedTime(LocalDateTime localDateTime) {
-        Instant instant = localDateTime.atZone(ZoneId.systemDefault()).toInstant();
-        long curTime = System.currentTimeMillis();
-        long regTime = instant.toEpochMilli();
-        long diffTime = getDiffTime(curTime, regTime);
-
-        if (diffTime < SEC) {
-            return diffTime + "초 전";
-        } else if ((diffTime /= SEC) < MIN) {
-            return diffTime + "분 전";
-        } else if ((diffTime /= MIN) < HOUR) {
-            return diffTime + "시간 전";
-        } else if ((diffTime /= HOUR) < DAY) {
-            return diffTime + "일 전";
-        } else if ((diffTime /= DAY) < MONTH) {
-            return diffTime + "달 전";
-        } else {
-            return diffTime + "년 전";
-        }
+        return PassedTimeFormatter.systemDefault().format(localDateTime, clock.millis());
     }
 
-    private long getDiffTime(long curTime, long regTime) {
-        return (curTime - regTime) / 1000;
+    // 항목을 묶어 계산하는 일괄 경로
+    @Override
+    public void getPassedTimes(long[] epochMillis, long nowMillis, String[] out) {
+        PassedTimeFormatter.systemDefault().format(epochMillis, nowMillis, out);
     }
 }
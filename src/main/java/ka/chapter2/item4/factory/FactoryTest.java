@@ -1,9 +1,16 @@
 package ka.chapter2.item4.factory;
 
+import ka.chapter2.item4.util.PassedTimeFormatter;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,4 +32,79 @@ public class FactoryTest {
         System.out.println(passedTime);
         assertTrue(passedTime.equals("2분 전"));
     }
+
+    @Test
+    @DisplayName("고정 시계 프로바이더 테스트")
+    void fixedClockTest() {
+        LocalDateTime registered = LocalDateTime.of(2024, 1, 1, 9, 0);
+        Clock clock = Clock.fixed(registered.plusMinutes(2).atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        DateTimeProvider provider = new DateTimeProviderImpl(clock);
+        assertTrue(provider.getPassedTime(registered).equals("2분 전"));
+    }
+
+    @Test
+    @DisplayName("경과 시간 일괄 계산 테스트")
+    void passedTimesTest() {
+        DateTimeProvider provider = DateTimeProviderFactory.getInstance();
+        long now = System.currentTimeMillis();
+        Random random = new Random(1);
+        long[] epochMillis = new long[2_000];
+        for (int i = 0; i < epochMillis.length; i++) {
+            // 미래 시각과 몇 년 전 시각까지 섞는다.
+            epochMillis[i] = now - (random.nextLong() % 100_000_000_000L);
+        }
+        epochMillis[0] = now;
+        epochMillis[1] = now - 59_999;
+        epochMillis[2] = now - 60_000;
+
+        String[] out = new String[epochMillis.length];
+        provider.getPassedTimes(epochMillis, now, out);
+        for (int i = 0; i < epochMillis.length; i++) {
+            assertTrue(out[i].equals(PassedTimeFormatter.systemDefault().format(epochMillis[i], now)));
+        }
+        // 기본 구현(항목별 반복)도 같은 결과를 낸다.
+        DateTimeProvider simple = localDateTime -> "";
+        String[] simpleOut = new String[epochMillis.length];
+        simple.getPassedTimes(epochMillis, now, simpleOut);
+        assertTrue(Arrays.equals(out, simpleOut));
+        assertTrue(out[0].equals("0초 전"));
+        assertTrue(out[1].equals("59초 전"));
+        assertTrue(out[2].equals("1분 전"));
+    }
+
+    @Test
+    @DisplayName("경과 시간 일괄 계산 성능 테스트")
+    void passedTimesBenchmarkTest() {
+        DateTimeProvider provider = DateTimeProviderFactory.getInstance();
+        int count = 1_000_000;
+        long now = System.currentTimeMillis();
+        long[] epochMillis = new long[count];
+        LocalDateTime[] dateTimes = new LocalDateTime[count];
+        for (int i = 0; i < count; i++) {
+            // 1년 안쪽
+            epochMillis[i] = now - (i * 17_000L) % 31_000_000_000L;
+            dateTimes[i] = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis[i]), ZoneId.systemDefault());
+        }
+        String[] out = new String[count];
+        provider.getPassedTimes(epochMillis, now, out);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            out[i] = provider.getPassedTime(dateTimes[i]);
+        }
+        long single = System.nanoTime() - begin;
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocated = bean.getThreadAllocatedBytes(threadId);
+        begin = System.nanoTime();
+        provider.getPassedTimes(epochMillis, now, out);
+        long batch = System.nanoTime() - begin;
+        allocated = bean.getThreadAllocatedBytes(threadId) - allocated;
+
+        System.out.println("getPassedTime x " + count + " = " + single / 1_000_000 + "ms");
+        System.out.println("getPassedTimes = " + batch / 1_000_000 + "ms, " + allocated / 1024 + "KB allocated");
+        // 작업용 배열 외에는 할당하지 않는다.
+        assertTrue(allocated < 64 * 1024);
+    }
 }
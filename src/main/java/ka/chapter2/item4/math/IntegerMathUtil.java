@@ -1,7 +1,66 @@
 package ka.chapter2.item4.math;
 
+import java.util.stream.IntStream;
+
 public class IntegerMathUtil {
+    // 이보다 짧은 배열은 병렬로 나누는 비용이 더 크다.
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int PARALLEL_CHUNK = 1 << 16;
+
     public static int operate(int a, int b, Operation operation) {
         return operation.operate(a, b);
     }
+
+    // out[i] = operation.operate(a[i], b[i])
+    public static void operate(int[] a, int[] b, int[] out, Operation operation) {
+        checkLength(a, b, out);
+        operate(a, b, out, 0, a.length, operation);
+    }
+
+    // 아주 긴 배열은 구간으로 나눠 여러 스레드에서 계산한다.
+    public static void operateParallel(int[] a, int[] b, int[] out, Operation operation) {
+        checkLength(a, b, out);
+        if (a.length < PARALLEL_THRESHOLD) {
+            operate(a, b, out, 0, a.length, operation);
+            return;
+        }
+        // 길이가 int 최댓값에 가까우면 구간 경계가 넘치므로 long으로 계산한다.
+        int chunks = (int) ((a.length + (long) PARALLEL_CHUNK - 1) / PARALLEL_CHUNK);
+        IntStream.range(0, chunks).parallel()
+                .forEach(chunk -> operate(a, b, out, (int) ((long) chunk * PARALLEL_CHUNK),
+                        (int) Math.min(a.length, (chunk + 1L) * PARALLEL_CHUNK), operation));
+    }
+
+    private static void operate(int[] a, int[] b, int[] out, int from, int to, Operation operation) {
+        // 덧셈, 뺄셈은 인터페이스 호출이 없는 단순 반복문으로 바꿔 JIT가 SIMD 명령으로 묶을 수 있게 한다.
+        // 하위 클래스는 동작을 바꿨을 수 있으므로 정확히 같은 클래스일 때만 쓴다.
+        Class<?> type = operation.getClass();
+        if (type == AddOperation.class) {
+            add(a, b, out, from, to);
+        } else if (type == SubtractOperation.class) {
+            subtract(a, b, out, from, to);
+        } else {
+            for (int i = from; i < to; i++) {
+                out[i] = operation.operate(a[i], b[i]);
+            }
+        }
+    }
+
+    private static void add(int[] a, int[] b, int[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    private static void subtract(int[] a, int[] b, int[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = a[i] - b[i];
+        }
+    }
+
+    private static void checkLength(int[] a, int[] b, int[] out) {
+        if (a.length != b.length || out.length < a.length) {
+            throw new IllegalArgumentException("array lengths do not match: a=" + a.length + ", b=" + b.length + ", out=" + out.length);
+        }
+    }
 }
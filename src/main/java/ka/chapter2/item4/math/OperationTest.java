@@ -2,6 +2,9 @@ package ka.chapter2.item4.math;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class OperationTest {
@@ -16,4 +19,85 @@ public class OperationTest {
         int result = IntegerMathUtil.operate(10, 20, new SubtractOperation());
         assertTrue(result == -10);
     }
+
+    @Test
+    void bulkOperateTest() {
+        Random random = new Random(3);
+        int[] a = random.ints(1_003).toArray();
+        int[] b = random.ints(1_003).toArray();
+        Operation multiply = (x, y) -> x * y;
+
+        for (Operation operation : new Operation[]{new AddOperation(), new SubtractOperation(), multiply}) {
+            int[] out = new int[a.length];
+            IntegerMathUtil.operate(a, b, out, operation);
+            for (int i = 0; i < a.length; i++) {
+                assertTrue(out[i] == operation.operate(a[i], b[i]));
+            }
+        }
+
+        // 덧셈을 바꾼 하위 클래스는 전용 반복문을 쓰지 않는다.
+        Operation doubled = new AddOperation() {
+            @Override
+            public int operate(int x, int y) {
+                return 2 * (x + y);
+            }
+        };
+        int[] out = new int[a.length];
+        IntegerMathUtil.operate(a, b, out, doubled);
+        assertTrue(out[0] == 2 * (a[0] + b[0]));
+    }
+
+    @Test
+    void parallelOperateTest() {
+        Random random = new Random(5);
+        int size = (1 << 21) + 7;
+        int[] a = random.ints(size).toArray();
+        int[] b = random.ints(size).toArray();
+        int[] sequential = new int[size];
+        int[] parallel = new int[size];
+
+        for (Operation operation : new Operation[]{new AddOperation(), new SubtractOperation(), (x, y) -> x ^ y}) {
+            IntegerMathUtil.operate(a, b, sequential, operation);
+            IntegerMathUtil.operateParallel(a, b, parallel, operation);
+            assertTrue(Arrays.equals(sequential, parallel));
+        }
+    }
+
+    @Test
+    void bulkOperateBenchmarkTest() {
+        int size = 10_000_000;
+        Random random = new Random(7);
+        int[] a = random.ints(size).toArray();
+        int[] b = random.ints(size).toArray();
+        int[] out = new int[size];
+        Operation add = new AddOperation();
+
+        // 워밍업
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < size; j++) {
+                out[j] = IntegerMathUtil.operate(a[j], b[j], add);
+            }
+            IntegerMathUtil.operate(a, b, out, add);
+            IntegerMathUtil.operateParallel(a, b, out, add);
+        }
+
+        long begin = System.nanoTime();
+        for (int j = 0; j < size; j++) {
+            out[j] = IntegerMathUtil.operate(a[j], b[j], add);
+        }
+        long pairwise = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        IntegerMathUtil.operate(a, b, out, add);
+        long bulk = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        IntegerMathUtil.operateParallel(a, b, out, add);
+        long parallel = System.nanoTime() - begin;
+
+        System.out.println("pairwise = " + pairwise / 1000 + "us");
+        System.out.println("bulk = " + bulk / 1000 + "us");
+        System.out.println("bulk parallel = " + parallel / 1000 + "us");
+        assertTrue(out[size - 1] == a[size - 1] + b[size - 1]);
+    }
 }
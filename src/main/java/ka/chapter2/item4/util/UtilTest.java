@@ -2,7 +2,9 @@ package ka.chapter2.item4.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -22,4 +24,18 @@ public class UtilTest {
         assertTrue(passedTime.equals("0초 전"));
     }
 
+    @Test
+    void staticUtilClockTest() {
+        LocalDateTime previousDateTime = StaticDateTimeUtil.localDateTime;
+        Clock previousClock = StaticDateTimeUtil.clock;
+        LocalDateTime registered = LocalDateTime.of(2024, 1, 1, 9, 0);
+        StaticDateTimeUtil.localDateTime = registered;
+        StaticDateTimeUtil.clock = Clock.fixed(registered.plusDays(3).atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        try {
+            assertTrue(StaticDateTimeUtil.getPassedTime().equals("3일 전"));
+        } finally {
+            StaticDateTimeUtil.localDateTime = previousDateTime;
+            StaticDateTimeUtil.clock = previousClock;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Collection;
+import java.util.Objects;
+
+public class BloomFilterLexicon implements Lexicon {
+    // 블록 하나 = long 8개 = 64바이트(캐시 라인 하나 크기)
+    private static final int BLOCK_LONGS = 8;
+    private static final int BLOCK_BITS = BLOCK_LONGS * Long.SIZE;
+    private static final int MAX_HASHES = 16;
+
+    private final Lexicon dictionary;
+    private final long[] bits;
+    private final int blocks;
+    private final int hashes;
+
+    public BloomFilterLexicon(Lexicon dictionary, Collection<String> words, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.dictionary = Objects.requireNonNull(dictionary);
+
+        // 일반 블룸 필터 공식 m = -n ln p / (ln 2)^2, k = m / n ln 2
+        // 한 블록 안에 비트가 몰리는 만큼 오탐률이 조금 높아지므로 비트 수를 20% 늘린다.
+        int n = Math.max(words.size(), 1);
+        double bitsPerWord = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long totalBits = (long) Math.ceil(n * bitsPerWord * 1.2);
+        long blockCount = Math.max(1, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        if (blockCount * BLOCK_LONGS > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("bloom filter is too large: " + totalBits + " bits");
+        }
+        this.blocks = (int) blockCount;
+        this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerWord * Math.log(2))));
+        this.bits = new long[blocks * BLOCK_LONGS];
+
+        for (String word : words) {
+            long hash = Words.hash64(word, 0, word.length());
+            int block = block(hash) * BLOCK_LONGS;
+            int h1 = (int) hash;
+            int h2 = (int) Words.mix64(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+                bits[block + (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    @Override
+    public boolean isContainsWord(String word) {
+        return isContainsWord(word, 0, word.length());
+    }
+
+    @Override
+    public boolean isContainsWord(CharSequence text, int start, int end) {
+        return mightContain(text, start, end) && dictionary.isContainsWord(text, start, end);
+    }
+
+    // false면 사전에 확실히 없는 단어, true면 사전에 있을 수도 있는 단어
+    public boolean mightContain(CharSequence text, int start, int end) {
+        long hash = Words.hash64(text, start, end);
+        int block = block(hash) * BLOCK_LONGS;
+        int h1 = (int) hash;
+        int h2 = (int) Words.mix64(hash) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int block(long hash) {
+        // 나머지 연산 대신 곱셈으로 [0, blocks) 범위에 대응시킨다.
+        return (int) (((hash >>> 32) * blocks) >>> 32);
+    }
+}
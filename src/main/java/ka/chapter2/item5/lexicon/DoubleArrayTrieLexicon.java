@@ -0,0 +1,156 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class DoubleArrayTrieLexicon implements Lexicon {
+    // 단어의 끝을 나타내는 전이 코드
+    private static final int END = 0;
+    private static final int ROOT = 0;
+
+    // 글자 -> 전이 코드(1부터 시작, 0이면 사전에 없는 글자)
+    private final char[] codes;
+    private final int[] base;
+    private final int[] check;
+    private final int size;
+
+    public DoubleArrayTrieLexicon(Collection<String> words) {
+        String[] sorted = Words.sortedUnique(words);
+        int count = sorted.length;
+
+        codes = new char[Character.MAX_VALUE + 1];
+        char code = 0;
+        boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < sorted[i].length(); j++) {
+                seen[sorted[i].charAt(j)] = true;
+            }
+        }
+        // 글자 순서대로 코드를 매겨야 정렬된 단어의 자식 코드도 오름차순이 된다.
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (seen[c]) {
+                codes[c] = ++code;
+            }
+        }
+
+        Builder builder = new Builder(codes, count);
+        if (count > 0) {
+            builder.insert(ROOT, sorted, 0, count, 0);
+        }
+        base = Arrays.copyOf(builder.base, builder.length);
+        check = Arrays.copyOf(builder.check, builder.length);
+        size = count;
+    }
+
+    @Override
+    public boolean isContainsWord(String word) {
+        return isContainsWord(word, 0, word.length());
+    }
+
+    @Override
+    public boolean isContainsWord(CharSequence text, int start, int end) {
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            int code = codes[Words.fold(text.charAt(i))];
+            if (code == 0) {
+                return false;
+            }
+            int next = base[state] + code;
+            if (next >= check.length || check[next] != state + 1) {
+                return false;
+            }
+            state = next;
+        }
+        int last = base[state] + END;
+        return last < check.length && check[last] == state + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static class Builder {
+        private final char[] codes;
+        private int[] base;
+        // check[t] = 부모 상태 + 1 (0이면 빈 칸)
+        private int[] check;
+        private int length = 1;
+        private int nextCheckPos = 1;
+
+        Builder(char[] codes, int words) {
+            this.codes = codes;
+            int capacity = Math.max(words * 4, 64);
+            base = new int[capacity];
+            check = new int[capacity];
+            check[ROOT] = -1;
+        }
+
+        void insert(int state, String[] words, int from, int to, int depth) {
+            // 정렬되어 있으므로 같은 자식 코드를 가진 단어끼리 연속해 있다.
+            int[] childCodes = new int[to - from];
+            int[] childStarts = new int[to - from + 1];
+            int children = 0;
+            for (int i = from; i < to; i++) {
+                int code = depth < words[i].length() ? codes[words[i].charAt(depth)] : END;
+                if (children == 0 || childCodes[children - 1] != code) {
+                    childCodes[children] = code;
+                    childStarts[children++] = i;
+                }
+            }
+            childStarts[children] = to;
+
+            int begin = findBase(childCodes, children);
+            base[state] = begin;
+            for (int i = 0; i < children; i++) {
+                check[begin + childCodes[i]] = state + 1;
+                length = Math.max(length, begin + childCodes[i] + 1);
+            }
+            for (int i = 0; i < children; i++) {
+                if (childCodes[i] != END) {
+                    insert(begin + childCodes[i], words, childStarts[i], childStarts[i + 1], depth + 1);
+                }
+            }
+        }
+
+        private int findBase(int[] childCodes, int children) {
+            int nonZero = 0;
+            boolean first = true;
+            int pos = Math.max(childCodes[0] + 1, nextCheckPos) - 1;
+
+            outer:
+            while (true) {
+                pos++;
+                ensureCapacity(pos);
+                if (check[pos] != 0) {
+                    nonZero++;
+                    continue;
+                } else if (first) {
+                    nextCheckPos = pos;
+                    first = false;
+                }
+
+                int begin = pos - childCodes[0];
+                ensureCapacity(begin + childCodes[children - 1]);
+                for (int i = 1; i < children; i++) {
+                    if (check[begin + childCodes[i]] != 0) {
+                        continue outer;
+                    }
+                }
+
+                // 앞쪽이 거의 다 찼으면 다음 탐색은 여기서부터 시작한다.
+                if ((double) nonZero / (pos - nextCheckPos + 1) >= 0.95) {
+                    nextCheckPos = pos;
+                }
+                return begin;
+            }
+        }
+
+        private void ensureCapacity(int index) {
+            if (index >= check.length) {
+                int capacity = Math.max(index + 1, check.length * 2);
+                base = Arrays.copyOf(base, capacity);
+                check = Arrays.copyOf(check, capacity);
+            }
+        }
+    }
+}
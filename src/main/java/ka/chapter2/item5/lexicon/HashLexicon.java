@@ -0,0 +1,98 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class HashLexicon implements Lexicon {
+    private static final int EMPTY = 0;
+
+    // 단어 전체를 하나의 char 배열에 이어 붙여 String 객체 수십만 개를 만들지 않는다.
+    private final char[] chars;
+    private final int[] offsets;
+
+    // 개방 주소법 테이블 (슬롯 값 = 단어 번호 + 1, 0이면 빈 슬롯)
+    private final int[] table;
+    private final int[] hashes;
+    private final int mask;
+    private final int size;
+
+    public HashLexicon(Collection<String> words) {
+        int capacity = tableSizeFor(words.size());
+        table = new int[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+
+        int totalLength = 0;
+        for (String word : words) {
+            totalLength += word.length();
+        }
+        char[] pool = new char[totalLength];
+        int[] ends = new int[words.size() + 1];
+
+        int count = 0;
+        int length = 0;
+        for (String word : words) {
+            int hash = Words.hash(word, 0, word.length());
+            int slot = findSlot(pool, ends, word, 0, word.length(), hash);
+            if (table[slot] != EMPTY) {
+                continue;
+            }
+            for (int i = 0; i < word.length(); i++) {
+                pool[length++] = Words.fold(word.charAt(i));
+            }
+            ends[++count] = length;
+            table[slot] = count;
+            hashes[slot] = hash;
+        }
+
+        chars = length == pool.length ? pool : Arrays.copyOf(pool, length);
+        offsets = count + 1 == ends.length ? ends : Arrays.copyOf(ends, count + 1);
+        size = count;
+    }
+
+    @Override
+    public boolean isContainsWord(String word) {
+        return isContainsWord(word, 0, word.length());
+    }
+
+    @Override
+    public boolean isContainsWord(CharSequence text, int start, int end) {
+        int hash = Words.hash(text, start, end);
+        return table[findSlot(chars, offsets, text, start, end, hash)] != EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(char[] pool, int[] ends, CharSequence text, int start, int end, int hash) {
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == EMPTY || (hashes[slot] == hash && matches(pool, ends, entry - 1, text, start, end))) {
+                return slot;
+            }
+        }
+    }
+
+    private static boolean matches(char[] pool, int[] ends, int index, CharSequence text, int start, int end) {
+        int from = ends[index];
+        if (ends[index + 1] - from != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (pool[from++] != Words.fold(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int tableSizeFor(int expected) {
+        // 부하율 0.5 이하로 유지해 탐사 길이를 짧게 만든다.
+        int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("too many words: " + expected);
+        }
+        return capacity;
+    }
+}
@@ -4,4 +4,9 @@ public interface Lexicon {
 
     boolean isContainsWord(String word);
 
+    // 문서 안의 [start, end) 구간을 단어로 보고 찾는다. 구현체가 재정의하면 substring을 만들지 않는다.
+    default boolean isContainsWord(CharSequence text, int start, int end) {
+        return isContainsWord(text.subSequence(start, end).toString());
+    }
+
 }
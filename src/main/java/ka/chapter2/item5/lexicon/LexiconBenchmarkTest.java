@@ -0,0 +1,92 @@
+package ka.chapter2.item5.lexicon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LexiconBenchmarkTest {
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void benchmark10K() {
+        benchmark(10_000);
+    }
+
+    @Test
+    void benchmark100K() {
+        benchmark(100_000);
+    }
+
+    @Test
+    void benchmark1M() {
+        benchmark(1_000_000);
+    }
+
+    private void benchmark(int size) {
+        List<String> words = randomWords(size, 42);
+        List<String> queries = new ArrayList<>(LOOKUPS);
+        List<String> misses = randomWords(LOOKUPS / 2, 7);
+        for (int i = 0; i < LOOKUPS / 2; i++) {
+            // 절반은 대문자로 바꾼 유효 단어, 절반은 사전에 없을 가능성이 큰 단어
+            queries.add(words.get(i % size).toUpperCase());
+            queries.add(misses.get(i));
+        }
+
+        Set<String> hashSet = new HashSet<>(words);
+        Lexicon baseline = word -> hashSet.contains(word.toLowerCase());
+
+        long start = System.nanoTime();
+        Lexicon hash = new HashLexicon(words);
+        System.out.println("[" + size + "] HashLexicon build = " + millis(start) + "ms");
+
+        start = System.nanoTime();
+        Lexicon trie = new DoubleArrayTrieLexicon(words);
+        System.out.println("[" + size + "] DoubleArrayTrieLexicon build = " + millis(start) + "ms");
+
+        int expected = lookup("HashSet + toLowerCase", size, baseline, queries);
+        assertTrue(lookup("HashLexicon", size, hash, queries) == expected);
+        assertTrue(lookup("DoubleArrayTrieLexicon", size, trie, queries) == expected);
+    }
+
+    private static int lookup(String name, int size, Lexicon lexicon, List<String> queries) {
+        // 워밍업
+        for (int i = 0; i < 100_000; i++) {
+            lexicon.isContainsWord(queries.get(i));
+        }
+
+        long start = System.nanoTime();
+        int found = 0;
+        for (String query : queries) {
+            if (lexicon.isContainsWord(query)) {
+                found++;
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / queries.size();
+        System.out.println("[" + size + "] " + name + " = " + nanos + "ns/lookup (found " + found + ")");
+        return found;
+    }
+
+    private static List<String> randomWords(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int length = 4 + random.nextInt(9);
+            char[] chars = new char[length];
+            for (int j = 0; j < length; j++) {
+                chars[j] = (char) ('a' + random.nextInt(26));
+            }
+            words.add(new String(chars));
+        }
+        return words;
+    }
+
+    private static double millis(long start) {
+        return (double) (System.nanoTime() - start) / 1000000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package ka.chapter2.item5.lexicon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class LexiconCompiler {
+    // 파일 구조 : MAGIC(int) | 단어 수(int) | 단어 시작 위치(int * (단어 수 + 1)) | 정렬된 단어(char ...)
+    static final int MAGIC = 0x4C455831;
+    static final int HEADER_BYTES = 8;
+
+    private LexiconCompiler() {
+        throw new AssertionError();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: LexiconCompiler <words.txt> <lexicon.bin>");
+            return;
+        }
+
+        List<String> words;
+        try (Stream<String> lines = Files.lines(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            words = lines.map(String::strip)
+                    .filter(line -> !line.isEmpty())
+                    .collect(Collectors.toList());
+        }
+        int count = compile(words, Path.of(args[1]));
+        System.out.println(count + " words -> " + args[1]);
+    }
+
+    public static int compile(Collection<String> words, Path target) throws IOException {
+        String[] sorted = Words.sortedUnique(words);
+        int unique = sorted.length;
+
+        // 중간에 실패하더라도 기존 파일이 깨지지 않도록 임시 파일에 쓴 뒤 교체한다.
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "lexicon", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(unique);
+            int offset = 0;
+            out.writeInt(offset);
+            for (int i = 0; i < unique; i++) {
+                offset += sorted[i].length();
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < unique; i++) {
+                out.writeChars(sorted[i]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return unique;
+    }
+}
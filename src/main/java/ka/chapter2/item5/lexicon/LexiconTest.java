@@ -2,6 +2,19 @@ package ka.chapter2.item5.lexicon;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LexiconTest {
@@ -22,4 +35,300 @@ public class LexiconTest {
         SpellChecker checker = new SpellChecker(new EnglishLexicon());
         assertTrue(checker.isValid("Apple"));
     }
+
+    @Test
+    void hashLexiconTest() {
+        HashLexicon lexicon = new HashLexicon(List.of("apple", "Banana", "cherry", "apple", "사과"));
+        SpellChecker checker = new SpellChecker(lexicon);
+
+        assertTrue(lexicon.size() == 4);
+        assertTrue(checker.isValid("APPLE"));
+        assertTrue(checker.isValid("banana"));
+        assertTrue(checker.isValid("사과"));
+        assertTrue(!checker.isValid("app"));
+        assertTrue(!checker.isValid("apples"));
+        assertTrue(!checker.isValid(""));
+    }
+
+    @Test
+    void doubleArrayTrieLexiconTest() {
+        DoubleArrayTrieLexicon lexicon = new DoubleArrayTrieLexicon(List.of("apple", "app", "Banana", "cherry", "apple", "사과", "바나나"));
+        SpellChecker checker = new SpellChecker(lexicon);
+
+        assertTrue(lexicon.size() == 6);
+        assertTrue(checker.isValid("Apple"));
+        assertTrue(checker.isValid("APP"));
+        assertTrue(checker.isValid("banana"));
+        assertTrue(checker.isValid("바나나"));
+        assertTrue(!checker.isValid("ap"));
+        assertTrue(!checker.isValid("apples"));
+        assertTrue(!checker.isValid("바나"));
+        assertTrue(!checker.isValid("zebra"));
+        assertTrue(!checker.isValid(""));
+    }
+
+    @Test
+    void emptyLexiconTest() {
+        assertTrue(!new HashLexicon(List.of()).isContainsWord("apple"));
+        assertTrue(!new DoubleArrayTrieLexicon(List.of()).isContainsWord(""));
+    }
+
+    @Test
+    void mappedLexiconTest() throws IOException {
+        Path file = Files.createTempFile("lexicon", ".bin");
+        try {
+            int count = LexiconCompiler.compile(List.of("cherry", "Apple", "banana", "apple", "사과"), file);
+            MappedLexicon lexicon = MappedLexicon.open(file);
+            SpellChecker checker = new SpellChecker(lexicon);
+
+            assertTrue(count == 4);
+            assertTrue(lexicon.size() == 4);
+            assertTrue(checker.isValid("APPLE"));
+            assertTrue(checker.isValid("cherry"));
+            assertTrue(checker.isValid("사과"));
+            assertTrue(!checker.isValid("appl"));
+            assertTrue(!checker.isValid("cherries"));
+            assertTrue(!checker.isValid(""));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void corruptedLexiconTest() throws IOException {
+        Path file = Files.createTempFile("lexicon", ".bin");
+        try {
+            LexiconCompiler.compile(List.of("apple", "banana"), file);
+            byte[] original = Files.readAllBytes(file);
+            // 단어 수를 음수, 아주 큰 수, 파일보다 조금 큰 수로 바꾼다.
+            for (int size : new int[]{-1, Integer.MAX_VALUE, 1_000}) {
+                byte[] corrupted = original.clone();
+                ByteBuffer.wrap(corrupted).putInt(4, size);
+                Files.write(file, corrupted);
+                boolean rejected = false;
+                try {
+                    MappedLexicon.open(file);
+                } catch (IOException e) {
+                    rejected = e.getMessage().equals("corrupted lexicon file");
+                }
+                assertTrue(rejected);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void suggestTest() {
+        List<String> words = List.of("apple", "apply", "ample", "maple", "banana", "bandana", "cherry", "사과");
+        SpellChecker checker = new SpellChecker(new HashLexicon(words), new SymSpellIndex(words, 2));
+
+        // 거리가 가까운 순, 같은 거리면 알파벳 순
+        assertTrue(checker.suggest("Appel", 2, 10).equals(List.of("apple", "apply")));
+        assertTrue(checker.suggest("apple", 1, 10).equals(List.of("apple", "ample", "apply")));
+        assertTrue(checker.suggest("mapel", 2, 10).equals(List.of("maple")));
+        assertTrue(checker.suggest("bananna", 2, 1).equals(List.of("banana")));
+        assertTrue(checker.suggest("사가", 1, 10).equals(List.of("사과")));
+        assertTrue(checker.suggest("zzz", 2, 10).isEmpty());
+    }
+
+    @Test
+    void suggestMatchesBruteForceTest() {
+        Random random = new Random(1);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            words.add(randomWord(random, 6, 3 + random.nextInt(6)));
+        }
+        SymSpellIndex index = new SymSpellIndex(words, 2);
+        Set<String> unique = new TreeSet<>(words);
+
+        for (int i = 0; i < 200; i++) {
+            String query = randomWord(random, 6, 3 + random.nextInt(6));
+            Set<String> expected = new TreeSet<>();
+            for (String word : unique) {
+                if (levenshtein(query, word) <= 2) {
+                    expected.add(word);
+                }
+            }
+            assertTrue(new TreeSet<>(index.suggest(query, 2, Integer.MAX_VALUE)).equals(expected));
+        }
+    }
+
+    @Test
+    void suggestLatencyTest() {
+        Random random = new Random(2);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 500_000; i++) {
+            words.add(randomWord(random, 26, 5 + random.nextInt(6)));
+        }
+        long start = System.nanoTime();
+        SymSpellIndex index = new SymSpellIndex(words, 2);
+        System.out.println("SymSpellIndex build = " + (System.nanoTime() - start) / 1000000 + "ms");
+
+        int queries = 10_000;
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < queries; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            String typo = word.substring(0, 2) + word.substring(3) + "x";
+            found += index.suggest(typo, 2, 5).size();
+        }
+        double micros = (double) (System.nanoTime() - start) / queries / 1000.0;
+        System.out.println("suggest(distance 2) = " + micros + "us/word (" + found + " suggestions)");
+        assertTrue(found >= queries);
+    }
+
+    @Test
+    void checkDocumentTest() throws IOException {
+        SpellChecker checker = new SpellChecker(new HashLexicon(List.of("i", "ate", "an", "apple", "and", "a", "banana", "사과")));
+        String text = "I ate an Appel, and a bananna! 사과 사가";
+        List<Misspelling> expected = List.of(
+                new Misspelling(9, "Appel"),
+                new Misspelling(22, "bananna"),
+                new Misspelling(34, "사가"));
+
+        assertTrue(checker.check(text).equals(expected));
+        assertTrue(checker.check(new StringReader(text)).equals(expected));
+        // 기본 구현(substring)으로 동작하는 Lexicon
+        assertTrue(new SpellChecker(new EnglishLexicon()).check("Apple, banana and kiwi").size() == 2);
+    }
+
+    @Test
+    void checkLargeDocumentTest() throws IOException {
+        List<String> words = List.of("the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog");
+        SpellChecker checker = new SpellChecker(new DoubleArrayTrieLexicon(words));
+        Random random = new Random(3);
+        StringBuilder text = new StringBuilder();
+        int typos = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            if (random.nextInt(100) == 0) {
+                text.append("teh");
+                typos++;
+            } else {
+                text.append(words.get(random.nextInt(words.size())));
+            }
+            text.append(i % 12 == 11 ? ".\n" : " ");
+        }
+
+        long start = System.nanoTime();
+        List<Misspelling> sequential = checker.check(text);
+        System.out.println("check = " + (System.nanoTime() - start) / 1000000 + "ms");
+
+        start = System.nanoTime();
+        List<Misspelling> parallel = checker.checkParallel(text);
+        System.out.println("checkParallel = " + (System.nanoTime() - start) / 1000000 + "ms");
+
+        List<Misspelling> streamed = checker.check(new StringReader(text.toString()));
+
+        assertTrue(sequential.size() == typos);
+        assertTrue(parallel.equals(sequential));
+        assertTrue(streamed.equals(sequential));
+    }
+
+    @Test
+    void checkLongWordParallelTest() {
+        SpellChecker checker = new SpellChecker(new HashLexicon(List.of("apple", "사과")));
+
+        // 띄어쓰기 없는 긴 글자열은 나눌 곳이 없어도 끝나야 한다.
+        String unspaced = "사".repeat(200_000);
+        assertTrue(checker.checkParallel(unspaced).equals(checker.check(unspaced)));
+        assertTrue(checker.checkParallel(unspaced).size() == 1);
+
+        // 뒤쪽 절반이 한 단어인 경우
+        String tail = "apple ".repeat(40_000) + "x".repeat(70_000);
+        List<Misspelling> parallel = checker.checkParallel(tail);
+        assertTrue(parallel.equals(checker.check(tail)));
+        assertTrue(parallel.size() == 1 && parallel.get(0).getOffset() == 240_000);
+    }
+
+    @Test
+    void bloomFilterLexiconTest() {
+        Random random = new Random(4);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            words.add(randomWord(random, 26, 6 + random.nextInt(5)));
+        }
+        HashLexicon dictionary = new HashLexicon(words);
+        int[] probes = new int[1];
+        Lexicon counting = new Lexicon() {
+            @Override
+            public boolean isContainsWord(String word) {
+                probes[0]++;
+                return dictionary.isContainsWord(word);
+            }
+
+            @Override
+            public boolean isContainsWord(CharSequence text, int start, int end) {
+                probes[0]++;
+                return dictionary.isContainsWord(text, start, end);
+            }
+        };
+        BloomFilterLexicon bloom = new BloomFilterLexicon(counting, words, 0.01);
+
+        for (String word : words) {
+            assertTrue(bloom.isContainsWord(word.toUpperCase()));
+        }
+
+        probes[0] = 0;
+        int misses = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String word = randomWord(random, 26, 11);
+            assertTrue(!bloom.isContainsWord(word));
+            misses++;
+        }
+        double falsePositiveRate = (double) probes[0] / misses;
+        System.out.println("bloom false positive rate = " + falsePositiveRate);
+        assertTrue(falsePositiveRate < 0.02);
+    }
+
+    @Test
+    void reloadableLexiconTest() throws Exception {
+        try (ReloadableLexicon lexicon = new ReloadableLexicon(new HashLexicon(List.of("apple", "banana")))) {
+            SpellChecker checker = new SpellChecker(lexicon);
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicInteger failures = new AtomicInteger();
+            Thread reader = new Thread(() -> {
+                // 교체 전후 어느 사전에도 있는 단어는 항상 찾아져야 한다.
+                while (running.get()) {
+                    if (!checker.isValid("apple")) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+
+            assertTrue(!checker.isValid("cherry"));
+            Lexicon next = lexicon.reload(() -> new DoubleArrayTrieLexicon(List.of("apple", "cherry"))).get();
+            running.set(false);
+            reader.join();
+
+            assertTrue(lexicon.current() == next);
+            assertTrue(checker.isValid("cherry"));
+            assertTrue(!checker.isValid("banana"));
+            assertTrue(failures.get() == 0);
+        }
+    }
+
+    private static String randomWord(Random random, int letters, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(letters));
+        }
+        return new String(chars);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                } else {
+                    int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                    d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
 }
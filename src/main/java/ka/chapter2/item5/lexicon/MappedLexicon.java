@@ -0,0 +1,87 @@
+package ka.chapter2.item5.lexicon;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedLexicon implements Lexicon {
+    // 절대 위치 get만 사용하므로 여러 스레드가 같은 버퍼를 읽어도 안전하다.
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int dataStart;
+
+    private MappedLexicon(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < LexiconCompiler.HEADER_BYTES || buffer.getInt(0) != LexiconCompiler.MAGIC) {
+            throw new IOException("not a compiled lexicon file");
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(4);
+        // 오프셋 표가 파일 안에 들어가는지 먼저 확인해야 표를 읽을 수 있다.
+        if (size < 0 || LexiconCompiler.HEADER_BYTES + (size + 1L) * Integer.BYTES > buffer.capacity()) {
+            throw new IOException("corrupted lexicon file");
+        }
+        this.dataStart = LexiconCompiler.HEADER_BYTES + (size + 1) * Integer.BYTES;
+        if ((long) dataStart + 2L * offset(size) != buffer.capacity()) {
+            throw new IOException("corrupted lexicon file");
+        }
+    }
+
+    public static MappedLexicon open(Path path) throws IOException {
+        // 매핑은 채널을 닫은 뒤에도 유지된다.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("lexicon file is too large: " + fileSize);
+            }
+            return new MappedLexicon(channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize));
+        }
+    }
+
+    @Override
+    public boolean isContainsWord(String word) {
+        return isContainsWord(word, 0, word.length());
+    }
+
+    @Override
+    public boolean isContainsWord(CharSequence text, int start, int end) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, text, start, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int compare(int index, CharSequence text, int start, int end) {
+        int from = offset(index);
+        int length = offset(index + 1) - from;
+        int queryLength = end - start;
+        int limit = Math.min(length, queryLength);
+        for (int i = 0; i < limit; i++) {
+            char stored = buffer.getChar(dataStart + (from + i) * Character.BYTES);
+            char query = Words.fold(text.charAt(start + i));
+            if (stored != query) {
+                return stored - query;
+            }
+        }
+        return length - queryLength;
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(LexiconCompiler.HEADER_BYTES + index * Integer.BYTES);
+    }
+}
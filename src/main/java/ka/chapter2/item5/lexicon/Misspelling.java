@@ -0,0 +1,43 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Objects;
+
+public class Misspelling {
+    // 문서 시작부터의 문자(char) 위치
+    private final long offset;
+    private final String word;
+
+    public Misspelling(long offset, String word) {
+        this.offset = offset;
+        this.word = Objects.requireNonNull(word);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Misspelling)) return false;
+        Misspelling that = (Misspelling) o;
+        return offset == that.offset && word.equals(that.word);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, word);
+    }
+
+    @Override
+    public String toString() {
+        return "Misspelling{" +
+                "offset=" + offset +
+                ", word='" + word + '\'' +
+                '}';
+    }
+}
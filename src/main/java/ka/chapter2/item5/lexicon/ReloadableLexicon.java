@@ -0,0 +1,52 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public class ReloadableLexicon implements Lexicon, AutoCloseable {
+    // 읽는 쪽은 락 없이 volatile 참조 하나만 읽는다.
+    private volatile Lexicon current;
+
+    // 재적재는 요청 순서대로 하나씩 처리해 오래된 사전이 새 사전을 덮어쓰지 않게 한다.
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lexicon-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReloadableLexicon(Lexicon initial) {
+        this.current = Objects.requireNonNull(initial);
+    }
+
+    @Override
+    public boolean isContainsWord(String word) {
+        return current.isContainsWord(word);
+    }
+
+    @Override
+    public boolean isContainsWord(CharSequence text, int start, int end) {
+        return current.isContainsWord(text, start, end);
+    }
+
+    public Lexicon current() {
+        return current;
+    }
+
+    // 새 사전은 백그라운드에서 끝까지 만든 뒤에만 교체하므로 조회 중인 쪽은 이전 사전을 그대로 쓴다.
+    public CompletableFuture<Lexicon> reload(Supplier<? extends Lexicon> builder) {
+        Objects.requireNonNull(builder);
+        return CompletableFuture.supplyAsync(() -> {
+            Lexicon next = Objects.requireNonNull(builder.get(), "builder returned null");
+            current = next;
+            return next;
+        }, loader);
+    }
+
+    @Override
+    public void close() {
+        loader.shutdown();
+    }
+}
@@ -1,15 +1,162 @@
 package ka.chapter2.item5.lexicon;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class SpellChecker {
+    private static final int READ_BUFFER_SIZE = 8192;
+    // 이보다 작은 구간은 더 나누지 않고 한 스레드에서 검사한다.
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
     private final Lexicon dictionary;
+    private final SymSpellIndex suggestions;
 
     public SpellChecker(Lexicon dictionary) {
         this.dictionary = Objects.requireNonNull(dictionary);
+        this.suggestions = null;
+    }
+
+    public SpellChecker(Lexicon dictionary, SymSpellIndex suggestions) {
+        this.dictionary = Objects.requireNonNull(dictionary);
+        this.suggestions = Objects.requireNonNull(suggestions);
     }
 
     public boolean isValid(String word) {
         return dictionary.isContainsWord(word);
     }
+
+    public List<String> suggest(String word, int maxDistance, int limit) {
+        if (suggestions == null) {
+            throw new IllegalStateException("suggestion index is not configured");
+        }
+        return suggestions.suggest(word, maxDistance, limit);
+    }
+
+    public List<Misspelling> check(CharSequence text) {
+        List<Misspelling> result = new ArrayList<>();
+        scan(text, 0, text.length(), 0, result);
+        return result;
+    }
+
+    public List<Misspelling> check(Reader reader) throws IOException {
+        List<Misspelling> result = new ArrayList<>();
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        CharBuffer view = CharBuffer.wrap(buffer);
+        long consumed = 0;
+        int length = 0;
+        boolean eof = false;
+
+        while (!eof) {
+            if (length == buffer.length) {
+                // 버퍼보다 긴 단어
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                view = CharBuffer.wrap(buffer);
+            }
+            int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                eof = true;
+            } else {
+                length += read;
+            }
+
+            // 버퍼 끝에 걸친 단어는 다음 읽기와 이어 붙여 검사한다.
+            int limit = length;
+            if (!eof) {
+                while (limit > 0 && isWordChar(buffer[limit - 1])) {
+                    limit--;
+                }
+            }
+            scan(view, 0, limit, consumed, result);
+            System.arraycopy(buffer, limit, buffer, 0, length - limit);
+            consumed += limit;
+            length -= limit;
+        }
+        return result;
+    }
+
+    public List<Misspelling> checkParallel(CharSequence text) {
+        return checkParallel(text, ForkJoinPool.commonPool());
+    }
+
+    public List<Misspelling> checkParallel(CharSequence text, ForkJoinPool pool) {
+        return pool.invoke(new CheckTask(text, 0, text.length()));
+    }
+
+    private void scan(CharSequence text, int from, int to, long base, List<Misspelling> result) {
+        int i = from;
+        while (i < to) {
+            while (i < to && !isWordChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < to && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            // 틀린 단어만 String으로 만든다.
+            if (start < i && !dictionary.isContainsWord(text, start, i)) {
+                result.add(new Misspelling(base + start, text.subSequence(start, i).toString()));
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c);
+    }
+
+    private class CheckTask extends RecursiveTask<List<Misspelling>> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+
+        CheckTask(CharSequence text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Misspelling> compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return scanSequentially();
+            }
+
+            // 단어 중간에서 자르지 않도록 경계를 뒤로 민다. 뒤쪽이 한 단어뿐이면 앞으로 찾는다.
+            int middle = (from + to) >>> 1;
+            int mid = middle;
+            while (mid < to && isWordChar(text.charAt(mid - 1)) && isWordChar(text.charAt(mid))) {
+                mid++;
+            }
+            if (mid == to) {
+                mid = middle;
+                while (mid > from && isWordChar(text.charAt(mid - 1)) && isWordChar(text.charAt(mid))) {
+                    mid--;
+                }
+            }
+            // 구간 전체가 한 단어라 나눌 곳이 없다.
+            if (mid == from || mid == to) {
+                return scanSequentially();
+            }
+            CheckTask left = new CheckTask(text, from, mid);
+            CheckTask right = new CheckTask(text, mid, to);
+            right.fork();
+            List<Misspelling> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+
+        private List<Misspelling> scanSequentially() {
+            List<Misspelling> result = new ArrayList<>();
+            scan(text, from, to, 0, result);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class SymSpellIndex {
+    private final int maxDistance;
+    private final String[] words;
+    private final int maxLength;
+
+    // 삭제 문자열 자체 대신 (해시 << 32 | 단어 번호)만 정렬해 저장한다.
+    // 해시 충돌로 섞여 들어온 후보는 편집 거리 계산에서 걸러진다.
+    private final long[] deletes;
+
+    public SymSpellIndex(Collection<String> words, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        this.words = Words.sortedUnique(words);
+
+        long total = 0;
+        int longest = 0;
+        for (String word : this.words) {
+            total += deleteCount(word.length(), maxDistance);
+            longest = Math.max(longest, word.length());
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many deletes for maxDistance " + maxDistance + ": " + total);
+        }
+        this.maxLength = longest;
+
+        long[] entries = new long[(int) total];
+        int[] removed = new int[maxDistance];
+        int count = 0;
+        for (int id = 0; id < this.words.length; id++) {
+            count = addDeletes(this.words[id], id, removed, 0, 0, entries, count);
+        }
+        Arrays.sort(entries, 0, count);
+
+        // 같은 삭제 문자열이 여러 위치에서 나올 수 있으므로 중복을 제거한다.
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || entries[unique - 1] != entries[i]) {
+                entries[unique++] = entries[i];
+            }
+        }
+        this.deletes = Arrays.copyOf(entries, unique);
+    }
+
+    public List<String> suggest(String word, int maxDistance, int limit) {
+        if (maxDistance < 0 || maxDistance > this.maxDistance) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and " + this.maxDistance + ": " + maxDistance);
+        }
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        String query = Words.fold(word);
+        Set<Integer> visited = new HashSet<>();
+        List<Long> matches = new ArrayList<>();
+        int[] previous = new int[maxLength + 1];
+        int[] current = new int[maxLength + 1];
+        int[] removed = new int[maxDistance];
+        collect(query, maxDistance, removed, 0, 0, visited, matches, previous, current);
+
+        // (거리 << 32 | 단어 번호) 순으로 정렬하면 거리, 알파벳 순이 된다.
+        matches.sort(null);
+        List<String> suggestions = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            suggestions.add(words[(int) (long) matches.get(i)]);
+        }
+        return suggestions;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    private int addDeletes(String word, int id, int[] removed, int depth, int from, long[] entries, int count) {
+        entries[count++] = ((long) hash(word, removed, depth) << 32) | id;
+        if (depth < removed.length) {
+            for (int i = from; i < word.length(); i++) {
+                removed[depth] = i;
+                count = addDeletes(word, id, removed, depth + 1, i + 1, entries, count);
+            }
+        }
+        return count;
+    }
+
+    private void collect(String query, int maxDistance, int[] removed, int depth, int from,
+                         Set<Integer> visited, List<Long> matches, int[] previous, int[] current) {
+        int hash = hash(query, removed, depth);
+        for (int i = lowerBound((long) hash << 32); i < deletes.length && (int) (deletes[i] >>> 32) == hash; i++) {
+            int id = (int) deletes[i];
+            String candidate = words[id];
+            if (Math.abs(candidate.length() - query.length()) > maxDistance || !visited.add(id)) {
+                continue;
+            }
+            int distance = distance(query, candidate, maxDistance, previous, current);
+            if (distance <= maxDistance) {
+                matches.add(((long) distance << 32) | id);
+            }
+        }
+
+        if (depth < maxDistance) {
+            for (int i = from; i < query.length(); i++) {
+                removed[depth] = i;
+                collect(query, maxDistance, removed, depth + 1, i + 1, visited, matches, previous, current);
+            }
+        }
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = deletes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (deletes[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // removed[0..depth) 위치의 글자를 뺀 문자열의 해시 (removed는 오름차순)
+    private static int hash(String word, int[] removed, int depth) {
+        int h = 0;
+        int next = 0;
+        for (int i = 0; i < word.length(); i++) {
+            if (next < depth && removed[next] == i) {
+                next++;
+                continue;
+            }
+            h = 31 * h + word.charAt(i);
+        }
+        h = 31 * h + (word.length() - depth);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    // 레벤슈타인 거리. max를 넘는 순간 max + 1을 돌려준다.
+    private static int distance(String a, String b, int max, int[] previous, int[] current) {
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static long deleteCount(int length, int maxDistance) {
+        long count = 0;
+        long combinations = 1;
+        for (int k = 0; k <= Math.min(length, maxDistance); k++) {
+            count += combinations;
+            combinations = combinations * (length - k) / (k + 1);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,67 @@
+package ka.chapter2.item5.lexicon;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+final class Words {
+    private Words() {
+        throw new AssertionError();
+    }
+
+    // String.toLowerCase()와 달리 새 문자열을 만들지 않고 한 글자씩 소문자로 비교하기 위함
+    static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    static String fold(String word) {
+        char[] chars = new char[word.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(word.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + fold(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // FNV-1a + murmur3 finalizer
+    static long hash64(CharSequence text, int start, int end) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            h = (h ^ fold(text.charAt(i))) * 0x100000001B3L;
+        }
+        return mix64(h);
+    }
+
+    static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // 소문자로 바꾼 뒤 정렬하고 중복을 제거한 단어 배열
+    static String[] sortedUnique(Collection<String> words) {
+        String[] sorted = new String[words.size()];
+        int count = 0;
+        for (String word : words) {
+            sorted[count++] = fold(word);
+        }
+        Arrays.sort(sorted);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || !sorted[unique - 1].equals(sorted[i])) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return unique == count ? sorted : Arrays.copyOf(sorted, unique);
+    }
+}
@@ -0,0 +1,138 @@
+package ka.chapter2.item7.post;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 게시글 본문을 힙 밖에 이어 붙여 저장하는 공간. 한 번 쓴 바이트는 바뀌지 않는다.
+public class ContentArena implements AutoCloseable {
+    private static final int DEFAULT_CHUNK_BITS = 24;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    private final int chunkBits;
+    private final int chunkSize;
+    // null이면 direct 버퍼, 아니면 파일을 청크 단위로 매핑한다.
+    private final FileChannel channel;
+    private final AtomicReferenceArray<ByteBuffer> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    // 쓰는 쪽은 이 값을 늘려 자기 구간을 받으므로 서로 다른 구간에 동시에 쓴다.
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile boolean closed;
+
+    private ContentArena(int chunkBits, FileChannel channel) {
+        if (chunkBits < 10 || chunkBits > 30) {
+            throw new IllegalArgumentException("chunkBits must be between 10 and 30: " + chunkBits);
+        }
+        this.chunkBits = chunkBits;
+        this.chunkSize = 1 << chunkBits;
+        this.channel = channel;
+    }
+
+    public static ContentArena direct() {
+        return direct(DEFAULT_CHUNK_BITS);
+    }
+
+    public static ContentArena direct(int chunkBits) {
+        return new ContentArena(chunkBits, null);
+    }
+
+    public static ContentArena mapped(Path file) throws IOException {
+        return mapped(file, DEFAULT_CHUNK_BITS);
+    }
+
+    // 파일은 이 공간만 쓰는 임시 저장소다. 다른 데이터를 덮어쓰지 않도록 비어 있지 않은 파일은 받지 않는다.
+    public static ContentArena mapped(Path file, int chunkBits) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() != 0) {
+                throw new IOException("content arena file is not empty: " + file);
+            }
+            return new ContentArena(chunkBits, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // 저장한 위치를 돌려준다. 청크 경계에 걸치면 나눠 쓴다.
+    public long append(byte[] bytes) {
+        long offset = claimed.getAndAdd(bytes.length);
+        if (offset + bytes.length > (long) MAX_CHUNKS << chunkBits) {
+            throw new IllegalStateException("content arena is full");
+        }
+        int written = 0;
+        while (written < bytes.length) {
+            long position = offset + written;
+            int length = Math.min(bytes.length - written, chunkSize - offset(position));
+            chunk(position).put(offset(position), bytes, written, length);
+            written += length;
+        }
+        return offset;
+    }
+
+    public byte[] read(long offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > claimed.get()) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length);
+        }
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            long position = offset + read;
+            int count = Math.min(length - read, chunkSize - offset(position));
+            chunk(position).get(offset(position), bytes, read, count);
+            read += count;
+        }
+        return bytes;
+    }
+
+    // 지금까지 받은 바이트 수
+    public long size() {
+        return claimed.get();
+    }
+
+    // 청크 참조를 놓아 direct 버퍼와 매핑이 GC로 해제될 수 있게 한다. 닫은 뒤에는 읽고 쓸 수 없다.
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (int index = 0; index < chunks.length(); index++) {
+            chunks.set(index, null);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer chunk(long position) {
+        if (closed) {
+            throw new IllegalStateException("content arena is closed");
+        }
+        int index = (int) (position >>> chunkBits);
+        ByteBuffer chunk = chunks.get(index);
+        if (chunk == null) {
+            ByteBuffer created = allocate(index);
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private ByteBuffer allocate(int index) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(chunkSize);
+        }
+        try {
+            // READ_WRITE 매핑은 파일이 짧으면 필요한 만큼 늘려 준다.
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) index << chunkBits, chunkSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int offset(long position) {
+        return (int) (position & (chunkSize - 1));
+    }
+}
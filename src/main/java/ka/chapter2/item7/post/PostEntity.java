@@ -1,13 +1,49 @@
 package ka.chapter2.item7.post;
 
+import java.nio.charset.StandardCharsets;
+
 public class PostEntity {
     int id;
     String title, content;
 
+    // 본문을 ContentArena에 둔 경우에는 content 대신 위치와 길이만 가진다. (길이 -1이면 null 본문)
+    private final ContentArena arena;
+    private final long contentOffset;
+    private final int contentLength;
+
     public PostEntity(int id, String title, String content) {
         this.id = id;
         this.title = title;
         this.content = content;
+        this.arena = null;
+        this.contentOffset = 0;
+        this.contentLength = 0;
+    }
+
+    public PostEntity(int id, String title, String content, ContentArena arena) {
+        this.id = id;
+        this.title = title;
+        this.arena = arena;
+        if (content == null) {
+            this.contentOffset = 0;
+            this.contentLength = -1;
+        } else {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            this.contentOffset = arena.append(bytes);
+            this.contentLength = bytes.length;
+        }
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    // 힙 밖에 둔 본문은 읽을 때마다 디코딩한다.
+    public String getContent() {
+        if (arena == null || contentLength < 0) {
+            return content;
+        }
+        return new String(arena.read(contentOffset, contentLength), StandardCharsets.UTF_8);
     }
 
     @Override
@@ -16,4 +52,4 @@ public class PostEntity {
                 "id=" + id +
                 '}';
     }
-}
\ No newline at end of file
+}
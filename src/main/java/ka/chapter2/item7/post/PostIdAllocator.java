@@ -0,0 +1,16 @@
+package ka.chapter2.item7.post;
+
+public interface PostIdAllocator {
+    int allocate();
+
+    // 1, 2, 3, ... 빈틈없이 증가하는 번호
+    static PostIdAllocator sequential() {
+        return new SequentialPostIdAllocator(1);
+    }
+
+    // 스레드마다 다른 조각에서 blockSize개씩 미리 받아 둔 번호를 나눠 준다.
+    // 하나의 카운터를 두고 경쟁하지 않는 대신 번호에 빈틈이 생기고 발급 순서와 번호 순서가 다를 수 있다.
+    static PostIdAllocator sharded(int shards, int blockSize) {
+        return new ShardedPostIdAllocator(1, shards, blockSize);
+    }
+}
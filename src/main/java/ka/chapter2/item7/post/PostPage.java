@@ -0,0 +1,39 @@
+package ka.chapter2.item7.post;
+
+import java.util.List;
+
+public class PostPage {
+    // 첫 페이지를 읽을 때의 커서. 0번 게시글도 저장될 수 있으므로 0보다 작아야 한다.
+    public static final int START = -1;
+    // 다음 페이지가 없을 때의 커서. 어떤 게시글 번호보다도 커서 이 커서로 읽으면 빈 페이지가 나온다.
+    public static final int NO_MORE = Integer.MAX_VALUE;
+
+    private final List<PostEntity> posts;
+    private final int nextCursor;
+
+    PostPage(List<PostEntity> posts, int nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PostEntity> getPosts() {
+        return posts;
+    }
+
+    // 이 페이지의 마지막 게시글 번호. 다음 페이지는 이 번호보다 큰 게시글부터다.
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != NO_MORE;
+    }
+
+    @Override
+    public String toString() {
+        return "PostPage{" +
+                "posts=" + posts +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
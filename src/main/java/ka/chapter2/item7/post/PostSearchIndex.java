@@ -0,0 +1,141 @@
+package ka.chapter2.item7.post;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// 제목과 본문의 단어 -> 게시글 번호 목록
+public class PostSearchIndex {
+    private final ConcurrentMap<String, PostingList> postings = new ConcurrentHashMap<>();
+
+    public void add(PostEntity entity) {
+        for (String term : terms(entity)) {
+            postings.computeIfAbsent(term, key -> new PostingList()).add(entity.id);
+        }
+    }
+
+    // 게시글을 바꾸기 전에 예전 내용의 단어에서 번호를 뺀다.
+    public void remove(PostEntity entity) {
+        for (String term : terms(entity)) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                list.remove(entity.id);
+            }
+        }
+    }
+
+    // 질의의 모든 단어가 들어 있는 게시글 번호 (오름차순)
+    public int[] searchAll(String query) {
+        PostingList.Cursor[] cursors = cursors(query);
+        if (cursors.length == 0) {
+            return new int[0];
+        }
+        for (PostingList.Cursor cursor : cursors) {
+            if (cursor == null) {
+                return new int[0];
+            }
+        }
+        // 가장 짧은 목록을 기준으로 나머지 목록을 건너뛰며 따라간다.
+        Arrays.sort(cursors, Comparator.comparingInt(PostingList.Cursor::size));
+
+        int[] result = new int[16];
+        int count = 0;
+        PostingList.Cursor lead = cursors[0];
+        int target = lead.id();
+        while (target != PostingList.NO_MORE) {
+            boolean matched = true;
+            for (int i = 1; i < cursors.length; i++) {
+                cursors[i].advance(target);
+                if (cursors[i].id() != target) {
+                    target = cursors[i].id();
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = target;
+                lead.next();
+            } else {
+                lead.advance(target);
+            }
+            target = lead.id();
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // 질의의 단어 중 하나라도 들어 있는 게시글 번호 (오름차순)
+    public int[] searchAny(String query) {
+        PostingList.Cursor[] cursors = cursors(query);
+        int[] result = new int[16];
+        int count = 0;
+        while (true) {
+            int min = PostingList.NO_MORE;
+            for (PostingList.Cursor cursor : cursors) {
+                if (cursor != null) {
+                    min = Math.min(min, cursor.id());
+                }
+            }
+            if (min == PostingList.NO_MORE) {
+                return Arrays.copyOf(result, count);
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = min;
+            for (PostingList.Cursor cursor : cursors) {
+                if (cursor != null && cursor.id() == min) {
+                    cursor.next();
+                }
+            }
+        }
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    // 없는 단어는 null
+    private PostingList.Cursor[] cursors(String query) {
+        Set<String> terms = terms(query);
+        PostingList.Cursor[] cursors = new PostingList.Cursor[terms.size()];
+        int i = 0;
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            cursors[i++] = list == null ? null : list.cursor();
+        }
+        return cursors;
+    }
+
+    // null인 제목, 본문은 건너뛴다.
+    static Set<String> terms(PostEntity entity) {
+        Set<String> terms = terms(entity.getTitle());
+        terms.addAll(terms(entity.getContent()));
+        return terms;
+    }
+
+    // 글자와 숫자가 이어진 부분을 소문자로 바꿔 단어로 본다.
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
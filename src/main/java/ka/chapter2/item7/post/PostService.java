@@ -1,7 +1,17 @@
 package ka.chapter2.item7.post;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class PostService {
     public static final PostService INSTANCE = new PostService();
@@ -9,23 +19,133 @@ public class PostService {
 
     }
 
-    List<PostEntity> repository = new LinkedList<>();
+    // 번호로 바로 찾을 수 있도록 게시글 번호를 위치로 쓰는 저장소
+    final PostTable repository = new PostTable();
+    // 동시에 저장해도 번호가 겹치지 않도록 원자적으로 발급한다.
+    // addAllById는 Dto의 번호를 그대로 쓰므로, savePost는 빈 번호를 받을 때까지 새 번호를 받는다.
+    private final PostIdAllocator idAllocator = PostIdAllocator.sequential();
+    // 제목, 본문 검색용 색인.
+    // savePost는 빈 번호에만 저장하므로 읽기 락으로 함께 색인하고, 게시글을 바꿀 수 있는 addAllById는
+    // 쓰기 락을 잡아 예전 단어를 지우는 동안 다른 저장이 끼어들지 않게 한다.
+    final PostSearchIndex searchIndex = new PostSearchIndex();
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    // null이 아니면 새 게시글의 본문을 힙 밖에 저장한다.
+    private volatile ContentArena contentArena;
 
     public PostEntity savePost(PostDto dto) {
-        PostEntity entity = new PostEntity(repository.size() + 1, dto.title, dto.content);
-        repository.add(entity);
+        PostEntity entity = newEntity(idAllocator.allocate(), dto);
+        indexLock.readLock().lock();
+        try {
+            while (!repository.putIfAbsent(entity)) {
+                entity.id = idAllocator.allocate();
+            }
+            searchIndex.add(entity);
+        } finally {
+            indexLock.readLock().unlock();
+        }
         return entity;
     }
 
-    public void addAllById(int id, PostDto... arr) {
-        // 여러 Dto 중에 해당되는 id에 대해서만 저장
-        for (int i = 0; i < arr.length; i++) {
-            PostEntity entity = new PostEntity(arr[i].id, arr[i].title, arr[i].content);
-            if (arr[i].id == id) {
-                repository.add(entity);
+    public void setContentArena(ContentArena contentArena) {
+        this.contentArena = contentArena;
+    }
+
+    private PostEntity newEntity(int id, PostDto dto) {
+        ContentArena arena = contentArena;
+        return arena == null ? new PostEntity(id, dto.title, dto.content) : new PostEntity(id, dto.title, dto.content, arena);
+    }
+
+    // O(1)
+    public PostEntity findById(int id) {
+        return repository.get(id);
+    }
+
+    // 첫 페이지
+    public PostPage findPage(int size) {
+        return findPage(PostPage.START, size);
+    }
+
+    // cursor보다 큰 번호의 게시글을 번호 순으로 size개. 앞 페이지를 다시 읽지 않으므로 뒤쪽 페이지도 빠르다.
+    public PostPage findPage(int cursor, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        List<PostEntity> posts = new ArrayList<>(size);
+        int last = repository.collect(cursor, size, posts);
+        boolean hasNext = posts.size() == size && last < repository.maxId();
+        return new PostPage(posts, hasNext ? last : PostPage.NO_MORE);
+    }
+
+    // 번호 순 스트림. parallel()로 번호 구간을 나눠 읽을 수 있다.
+    public Stream<PostEntity> stream() {
+        return StreamSupport.stream(repository.spliterator(), false);
+    }
+
+    // 모든 단어가 들어 있는 게시글 (번호 오름차순)
+    public List<PostEntity> searchAll(String query) {
+        return toEntities(searchIndex.searchAll(query));
+    }
+
+    // 단어 중 하나라도 들어 있는 게시글 (번호 오름차순)
+    public List<PostEntity> searchAny(String query) {
+        return toEntities(searchIndex.searchAny(query));
+    }
+
+    private List<PostEntity> toEntities(int[] ids) {
+        List<PostEntity> entities = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            entities.add(repository.get(id));
+        }
+        return entities;
+    }
+
+    public int addAllById(int id, PostDto... arr) {
+        return addAllById(id, Arrays.asList(arr).iterator());
+    }
+
+    // 여러 Dto 중에 해당되는 id에 대해서만 저장
+    // 조건을 먼저 확인하므로 걸러질 Dto에 대해서는 PostEntity를 만들지 않는다.
+    public int addAllById(int id, Iterator<PostDto> dtos) {
+        List<PostEntity> matched = new ArrayList<>();
+        while (dtos.hasNext()) {
+            PostDto dto = dtos.next();
+            if (dto.id == id) {
+                matched.add(newEntity(dto.id, dto));
             }
         }
+        return store(matched);
+    }
+
+    public int addAllById(int id, Stream<PostDto> dtos) {
+        List<PostEntity> matched = dtos.filter(dto -> dto.id == id)
+                .map(dto -> newEntity(dto.id, dto))
+                .collect(Collectors.toList());
+        return store(matched);
+    }
 
-        // 위 for문이 끝나면 쓸데없이 만들어졌던 객체들(참조 되지 않는 객체들)이 더 이상 접근되지 않음
+    private int store(List<PostEntity> matched) {
+        indexLock.writeLock().lock();
+        try {
+            List<PostEntity> replaced = repository.putAll(matched);
+            if (!replaced.isEmpty()) {
+                // 같은 묶음 안에서 덮어쓴 게시글은 아직 색인하지 않았으므로 건너뛴다.
+                Set<PostEntity> batch = Collections.newSetFromMap(new IdentityHashMap<>());
+                batch.addAll(matched);
+                for (PostEntity previous : replaced) {
+                    if (!batch.contains(previous)) {
+                        searchIndex.remove(previous);
+                    }
+                }
+            }
+            // 같은 번호가 여러 번 들어 있으면 마지막으로 저장된 게시글만 색인한다.
+            for (PostEntity entity : matched) {
+                if (repository.get(entity.id) == entity) {
+                    searchIndex.add(entity);
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return matched.size();
     }
 }
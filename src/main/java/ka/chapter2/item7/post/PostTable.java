@@ -0,0 +1,314 @@
+package ka.chapter2.item7.post;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+public class PostTable {
+    // 번호 = 디렉터리(상위 11비트) | 페이지(중간 10비트) | 칸(하위 10비트)
+    private static final int PAGE_BITS = 10;
+    private static final int DIRECTORY_SHIFT = PAGE_BITS * 2;
+    private static final int MASK = (1 << PAGE_BITS) - 1;
+    // Integer.MAX_VALUE는 PostPage.NO_MORE 커서로 쓰므로 번호로 받지 않는다.
+    private static final long CAPACITY = Integer.MAX_VALUE;
+
+    // 게시글 번호가 곧 위치다. 디렉터리와 페이지는 처음 쓸 때 만들고 옮겨 담지 않는다.
+    // 번호가 띄엄띄엄 들어와도 게시글 하나에 1024칸짜리 페이지 두 개 이상은 만들지 않는다.
+    private final AtomicReferenceArray<Directory> directories =
+            new AtomicReferenceArray<>((int) ((CAPACITY >>> DIRECTORY_SHIFT) + 1));
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger maxId = new AtomicInteger(-1);
+
+    // 같은 번호의 게시글이 있으면 바꾸고 이전 게시글을 돌려준다.
+    public PostEntity put(PostEntity entity) {
+        PostEntity previous = store(entity);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        maxId.accumulateAndGet(entity.id, Math::max);
+        return previous;
+    }
+
+    // 번호가 비어 있을 때만 넣는다. 이미 다른 게시글이 있으면 false
+    public boolean putIfAbsent(PostEntity entity) {
+        Directory directory = directory(entity);
+        Page page = directory.page(entity.id);
+        if (!page.slots.compareAndSet(slot(entity.id), null, entity)) {
+            return false;
+        }
+        added(directory, page, entity.id);
+        size.incrementAndGet();
+        maxId.accumulateAndGet(entity.id, Math::max);
+        return true;
+    }
+
+    // 여러 게시글을 넣고 개수와 최대 번호는 마지막에 한 번만 갱신한다. 바뀌어 빠진 게시글을 돌려준다.
+    public List<PostEntity> putAll(Collection<PostEntity> entities) {
+        List<PostEntity> replaced = new ArrayList<>(0);
+        int added = 0;
+        int max = -1;
+        for (PostEntity entity : entities) {
+            PostEntity previous = store(entity);
+            if (previous == null) {
+                added++;
+            } else {
+                replaced.add(previous);
+            }
+            max = Math.max(max, entity.id);
+        }
+        size.addAndGet(added);
+        maxId.accumulateAndGet(max, Math::max);
+        return replaced;
+    }
+
+    private PostEntity store(PostEntity entity) {
+        Directory directory = directory(entity);
+        Page page = directory.page(entity.id);
+        PostEntity previous = page.slots.getAndSet(slot(entity.id), entity);
+        if (previous == null) {
+            added(directory, page, entity.id);
+        }
+        return previous;
+    }
+
+    // 칸을 채운 뒤에 표시하므로, 표시된 칸은 비어 있지 않다.
+    private static void added(Directory directory, Page page, int id) {
+        page.mark(slot(id));
+        directory.size.incrementAndGet();
+    }
+
+    // 게시글 번호가 들어갈 디렉터리. 없으면 만든다.
+    private Directory directory(PostEntity entity) {
+        Objects.requireNonNull(entity);
+        if (entity.id < 0 || entity.id >= CAPACITY) {
+            throw new IllegalArgumentException("post id must be between 0 and " + (CAPACITY - 1) + ": " + entity.id);
+        }
+        int directoryIndex = entity.id >>> DIRECTORY_SHIFT;
+        Directory directory = directories.get(directoryIndex);
+        if (directory == null) {
+            Directory created = new Directory();
+            directory = directories.compareAndSet(directoryIndex, null, created) ? created : directories.get(directoryIndex);
+        }
+        return directory;
+    }
+
+    // O(1), 없으면 null
+    public PostEntity get(int id) {
+        if (id < 0 || id >= CAPACITY) {
+            return null;
+        }
+        Directory directory = directories.get(id >>> DIRECTORY_SHIFT);
+        if (directory == null) {
+            return null;
+        }
+        Page page = directory.pages.get(page(id));
+        return page == null ? null : page.slots.get(slot(id));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // 저장된 가장 큰 번호, 비어 있으면 -1
+    public int maxId() {
+        return maxId.get();
+    }
+
+    // 번호 오름차순
+    public void forEach(Consumer<? super PostEntity> action) {
+        for (long id = nextId(0, CAPACITY); id >= 0; id = nextId(id + 1, CAPACITY)) {
+            action.accept(get((int) id));
+        }
+    }
+
+    // afterId보다 큰 번호의 게시글을 번호 순으로 최대 limit개 담고, 마지막으로 담은 번호를 돌려준다.
+    public int collect(int afterId, int limit, List<PostEntity> out) {
+        int last = afterId;
+        long from = Math.max(afterId + 1L, 0);
+        for (int added = 0; added < limit; added++) {
+            long id = nextId(from, CAPACITY);
+            if (id < 0) {
+                break;
+            }
+            out.add(get((int) id));
+            last = (int) id;
+            from = id + 1;
+        }
+        return last;
+    }
+
+    // [from, to)에서 저장된 가장 작은 번호, 없으면 -1.
+    // 빈 디렉터리와 빈 페이지는 통째로, 페이지 안은 표시 비트로 건너뛰므로 번호 폭이 아니라 게시글 수에 비례한다.
+    private long nextId(long from, long to) {
+        long id = from;
+        while (id < to) {
+            Directory directory = directories.get((int) (id >>> DIRECTORY_SHIFT));
+            if (directory == null) {
+                id = ((id >>> DIRECTORY_SHIFT) + 1) << DIRECTORY_SHIFT;
+                continue;
+            }
+            Page page = directory.pages.get(page((int) id));
+            if (page != null) {
+                int offset = page.next(slot((int) id));
+                if (offset >= 0) {
+                    long found = (id & ~(long) MASK) + offset;
+                    return found < to ? found : -1;
+                }
+            }
+            id = ((id >>> PAGE_BITS) + 1) << PAGE_BITS;
+        }
+        return -1;
+    }
+
+    // 호출 시점의 최대 번호까지를 번호 순으로 읽는다. 게시글을 복사해 두지 않으므로 메모리는 일정하다.
+    public Spliterator<PostEntity> spliterator() {
+        return new RangeSpliterator(0, maxId() + 1L, size());
+    }
+
+    // 디렉터리 안에서 페이지의 위치
+    private static int page(int id) {
+        return (id >>> PAGE_BITS) & MASK;
+    }
+
+    // 페이지 안에서의 위치
+    private static int slot(int id) {
+        return id & MASK;
+    }
+
+    private static final class Directory {
+        private final AtomicReferenceArray<Page> pages = new AtomicReferenceArray<>(1 << PAGE_BITS);
+        // 이 디렉터리에 든 게시글 수. 나눠 읽을 때 게시글이 절반쯤 되는 곳을 찾는 데 쓴다.
+        private final AtomicInteger size = new AtomicInteger();
+
+        // 게시글 번호가 들어갈 페이지. 없으면 만든다.
+        Page page(int id) {
+            int pageIndex = PostTable.page(id);
+            Page page = pages.get(pageIndex);
+            if (page == null) {
+                Page created = new Page();
+                page = pages.compareAndSet(pageIndex, null, created) ? created : pages.get(pageIndex);
+            }
+            return page;
+        }
+    }
+
+    private static final class Page {
+        private final AtomicReferenceArray<PostEntity> slots = new AtomicReferenceArray<>(1 << PAGE_BITS);
+        // 칸마다 1비트, 채워진 칸 표시
+        private final AtomicLongArray occupied = new AtomicLongArray((1 << PAGE_BITS) / Long.SIZE);
+
+        void mark(int slot) {
+            occupied.accumulateAndGet(slot / Long.SIZE, 1L << slot, (bits, bit) -> bits | bit);
+        }
+
+        // slot 이상인 첫 번째 채워진 칸, 없으면 -1
+        int next(int slot) {
+            for (int word = slot / Long.SIZE; word < occupied.length(); word++) {
+                long bits = occupied.get(word);
+                if (word == slot / Long.SIZE) {
+                    bits &= -1L << slot;
+                }
+                if (bits != 0) {
+                    return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return -1;
+        }
+
+        // slot 이상인 채워진 칸 수
+        int count(int slot) {
+            int count = Long.bitCount(occupied.get(slot / Long.SIZE) & (-1L << slot));
+            for (int word = slot / Long.SIZE + 1; word < occupied.length(); word++) {
+                count += Long.bitCount(occupied.get(word));
+            }
+            return count;
+        }
+    }
+
+    // [next, end) 번호 구간. 게시글 수가 절반쯤 되는 페이지 경계에서 나눠 병렬로 읽을 수 있다.
+    private class RangeSpliterator implements Spliterator<PostEntity> {
+        private static final int MIN_SPLIT = 1 << 10;
+
+        private long next;
+        private final long end;
+        private long estimate;
+
+        RangeSpliterator(long next, long end, long estimate) {
+            this.next = next;
+            this.end = end;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super PostEntity> action) {
+            long id = nextId(next, end);
+            if (id < 0) {
+                next = end;
+                return false;
+            }
+            next = id + 1;
+            action.accept(get((int) id));
+            return true;
+        }
+
+        @Override
+        public Spliterator<PostEntity> trySplit() {
+            if (estimate < MIN_SPLIT) {
+                return null;
+            }
+            // 통째로 들어오는 디렉터리는 개수만 더하고, 걸치는 디렉터리는 페이지 단위로 센다.
+            long half = estimate / 2;
+            long seen = 0;
+            long middle = next;
+            while (middle < end && seen < half) {
+                long directoryEnd = ((middle >>> DIRECTORY_SHIFT) + 1) << DIRECTORY_SHIFT;
+                Directory directory = directories.get((int) (middle >>> DIRECTORY_SHIFT));
+                if (directory == null) {
+                    middle = directoryEnd;
+                    continue;
+                }
+                int directorySize = directory.size.get();
+                if ((middle & ((1L << DIRECTORY_SHIFT) - 1)) == 0 && directoryEnd <= end && seen + directorySize <= half) {
+                    seen += directorySize;
+                    middle = directoryEnd;
+                    continue;
+                }
+                Page page = directory.pages.get(page((int) middle));
+                if (page != null) {
+                    seen += page.count(slot((int) middle));
+                }
+                middle = ((middle >>> PAGE_BITS) + 1) << PAGE_BITS;
+            }
+            if (middle >= end) {
+                return null;
+            }
+            Spliterator<PostEntity> prefix = new RangeSpliterator(next, middle, seen);
+            next = middle;
+            estimate = Math.max(estimate - seen, 0);
+            return prefix;
+        }
+
+        // 나눌 때 센 게시글 수. 읽는 중에 들어온 게시글은 빠져 있을 수 있다.
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | CONCURRENT;
+        }
+
+        @Override
+        public Comparator<? super PostEntity> getComparator() {
+            return Comparator.comparingInt(entity -> entity.id);
+        }
+    }
+}
@@ -2,6 +2,25 @@ package ka.chapter2.item7.post;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PostTest {
@@ -30,4 +49,504 @@ public class PostTest {
 
         assertTrue(entity.title.equals("Hello"));
     }
+
+    @Test
+    void concurrentSaveTest() throws Exception {
+        PostService service = PostService.INSTANCE;
+        int threads = 8;
+        int posts = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<PostEntity>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                List<PostEntity> saved = new ArrayList<>();
+                for (int i = 0; i < posts; i++) {
+                    saved.add(service.savePost(new PostDto("title" + i, "content" + i)));
+                }
+                return saved;
+            }));
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<PostEntity>> future : futures) {
+            for (PostEntity entity : future.get()) {
+                // 번호가 겹치지 않고, 번호로 바로 찾을 수 있어야 한다.
+                assertTrue(ids.add(entity.id));
+                assertTrue(service.findById(entity.id) == entity);
+            }
+        }
+        executor.shutdown();
+        assertTrue(ids.size() == threads * posts);
+        assertTrue(service.findById(-1) == null);
+        assertTrue(service.findById(Integer.MAX_VALUE) == null);
+    }
+
+    @Test
+    void shardedIdAllocatorTest() throws Exception {
+        PostIdAllocator allocator = PostIdAllocator.sharded(4, 64);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int count = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    assertTrue(ids.add(allocator.allocate()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(ids.size() == threads * count);
+        assertTrue(!ids.contains(0));
+    }
+
+    @Test
+    void postTableTest() {
+        PostTable table = new PostTable();
+        table.put(new PostEntity(3, "c", "c"));
+        table.put(new PostEntity(1, "a", "a"));
+        table.put(new PostEntity(5000, "b", "b"));
+        PostEntity replaced = table.put(new PostEntity(1, "a2", "a2"));
+
+        assertTrue(replaced.title.equals("a"));
+        assertTrue(table.size() == 3);
+        assertTrue(table.maxId() == 5000);
+        assertTrue(table.get(1).title.equals("a2"));
+        assertTrue(table.get(2) == null);
+
+        List<Integer> ids = new ArrayList<>();
+        table.forEach(entity -> ids.add(entity.id));
+        assertTrue(ids.equals(List.of(1, 3, 5000)));
+        // 멀리 떨어진 번호도 그 번호가 들어갈 페이지만 만든다.
+        long before = usedHeap();
+        table.put(new PostEntity(1_500_000_000, "far", "far"));
+        assertTrue(usedHeap() - before < 1024 * 1024);
+        assertTrue(table.get(1_500_000_000).title.equals("far"));
+        assertTrue(table.get(1_500_000_001) == null);
+        assertTrue(table.size() == 4);
+    }
+
+    @Test
+    void saveAfterImportTest() {
+        PostService service = PostService.INSTANCE;
+        // 다음에 savePost가 받을 번호를 미리 가져다 쓴다.
+        int next = service.savePost(new PostDto("probe", "content")).id + 1;
+        PostDto imported = new PostDto("imported", "content");
+        imported.id = next;
+        int size = service.repository.size();
+        service.addAllById(next, imported);
+
+        PostEntity saved = service.savePost(new PostDto("saved", "content"));
+        assertTrue(saved.id != next);
+        assertTrue(service.findById(next).title.equals("imported"));
+        assertTrue(service.findById(saved.id) == saved);
+        assertTrue(service.repository.size() == size + 2);
+    }
+
+    @Test
+    void addAllByIdTest() {
+        PostService service = PostService.INSTANCE;
+        PostDto match = new PostDto("match", "content");
+        match.id = 1_000_001;
+        PostDto other = new PostDto("other", "content");
+        other.id = 1_000_002;
+
+        assertTrue(service.addAllById(1_000_001, other, match, other) == 1);
+        assertTrue(service.findById(1_000_001).title.equals("match"));
+        assertTrue(service.findById(1_000_002) == null);
+        assertTrue(service.addAllById(1_000_001, Arrays.asList(match, other).iterator()) == 1);
+        assertTrue(service.addAllById(1_000_001, Arrays.asList(other, match, match).stream()) == 2);
+        assertTrue(service.findById(1_000_002) == null);
+    }
+
+    @Test
+    void addAllByIdAllocationTest() {
+        PostService service = PostService.INSTANCE;
+        int count = 1_000_000;
+        int id = 2_000_000;
+        List<PostDto> dtos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PostDto dto = new PostDto("title", "content");
+            // 1%만 저장 대상
+            dto.id = i % 100 == 0 ? id : i;
+            dtos.add(dto);
+        }
+
+        // 워밍업
+        for (int i = 0; i < 5; i++) {
+            legacyAddAllById(id, dtos);
+            service.addAllById(id, dtos.iterator());
+        }
+
+        long legacy = allocatedBytes(() -> legacyAddAllById(id, dtos));
+        long iterator = allocatedBytes(() -> service.addAllById(id, dtos.iterator()));
+        long stream = allocatedBytes(() -> service.addAllById(id, dtos.stream()));
+        System.out.println("build then filter = " + legacy / 1024 + "KB");
+        System.out.println("filter then build (Iterator) = " + iterator / 1024 + "KB");
+        System.out.println("filter then build (Stream) = " + stream / 1024 + "KB");
+
+        // 할당량은 입력 개수가 아니라 걸러진 개수에 비례해야 한다.
+        assertTrue(iterator < count * 4L);
+        assertTrue(stream < count * 4L);
+    }
+
+    // 필터보다 PostEntity 생성을 먼저 하던 방식
+    private static int legacyAddAllById(int id, List<PostDto> dtos) {
+        List<PostEntity> matched = new ArrayList<>();
+        for (PostDto dto : dtos) {
+            PostEntity entity = new PostEntity(dto.id, dto.title, dto.content);
+            if (dto.id == id) {
+                matched.add(entity);
+            }
+        }
+        return matched.size();
+    }
+
+    private static long allocatedBytes(Runnable task) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        task.run();
+        return bean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    @Test
+    void searchTest() {
+        PostService service = PostService.INSTANCE;
+        PostEntity java = service.savePost(new PostDto("Effective Java", "아이템 7 다 쓴 객체 참조를 해제하라"));
+        PostEntity kotlin = service.savePost(new PostDto("Kotlin", "Effective Kotlin 스터디"));
+
+        assertTrue(service.searchAll("effective").containsAll(List.of(java, kotlin)));
+        assertTrue(service.searchAll("Effective JAVA").contains(java));
+        assertTrue(!service.searchAll("effective java").contains(kotlin));
+        assertTrue(service.searchAny("참조를 스터디").containsAll(List.of(java, kotlin)));
+        assertTrue(service.searchAll("없는단어").isEmpty());
+        assertTrue(service.searchAll("").isEmpty());
+    }
+
+    @Test
+    void searchReplacedPostTest() {
+        PostService service = PostService.INSTANCE;
+        PostEntity original = service.savePost(new PostDto("hello", "world"));
+        PostDto replacement = new PostDto("x", "y");
+        replacement.id = original.id;
+        service.addAllById(original.id, replacement, replacement);
+
+        assertTrue(service.searchAll("hello").stream().noneMatch(entity -> entity.id == original.id));
+        assertTrue(service.searchAll("x y").contains(service.findById(original.id)));
+
+        // null 제목은 "null"이라는 단어로 색인하지 않는다.
+        PostEntity untitled = service.savePost(new PostDto(null, "본문만"));
+        assertTrue(!service.searchAny("null").contains(untitled));
+        assertTrue(service.searchAll("본문만").contains(untitled));
+    }
+
+    @Test
+    void searchIndexRemoveTest() {
+        // 블록 안, 블록 전체, tail에서 번호를 빼도 남은 게시글의 결과와 같아야 한다.
+        Random random = new Random(11);
+        PostSearchIndex index = new PostSearchIndex();
+        List<PostEntity> kept = new ArrayList<>();
+        List<PostEntity> removed = new ArrayList<>();
+        for (int id = 0; id < 5_000; id++) {
+            PostEntity entity = new PostEntity(id, "common", random.nextBoolean() ? "odd" : "even");
+            index.add(entity);
+            // 앞쪽 블록 하나는 통째로 지운다.
+            if ((id >= 128 && id < 256) || random.nextInt(3) == 0) {
+                removed.add(entity);
+            } else {
+                kept.add(entity);
+            }
+        }
+        for (PostEntity entity : removed) {
+            index.remove(entity);
+        }
+
+        for (String query : new String[]{"common", "odd", "even", "common odd"}) {
+            Set<String> terms = PostSearchIndex.terms(query);
+            int[] expected = kept.stream()
+                    .filter(entity -> PostSearchIndex.terms(entity).containsAll(terms))
+                    .mapToInt(entity -> entity.id)
+                    .toArray();
+            assertTrue(Arrays.equals(index.searchAll(query), expected));
+        }
+    }
+
+    @Test
+    void searchIndexTest() {
+        // 번호를 섞어서 넣어도 (블록 안 삽입, 블록 나누기) 전체 검색 결과와 같아야 한다.
+        Random random = new Random(42);
+        String[] words = {"alpha", "beta", "gamma", "delta", "epsilon"};
+        int count = 20_000;
+        List<Integer> order = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            order.add(id);
+        }
+        Collections.shuffle(order.subList(count / 2, count), random);
+
+        PostSearchIndex index = new PostSearchIndex();
+        List<PostEntity> posts = new ArrayList<>();
+        for (int id : order) {
+            StringBuilder content = new StringBuilder();
+            for (String word : words) {
+                if (random.nextInt(4) == 0) {
+                    content.append(word).append(' ');
+                }
+            }
+            PostEntity entity = new PostEntity(id * 3, "post", content.toString());
+            posts.add(entity);
+            index.add(entity);
+        }
+        posts.sort((a, b) -> Integer.compare(a.id, b.id));
+
+        String[] queries = {"alpha", "alpha beta", "gamma delta epsilon", "post beta", "alpha zeta"};
+        for (String query : queries) {
+            Set<String> terms = PostSearchIndex.terms(query);
+            List<Integer> all = new ArrayList<>();
+            List<Integer> any = new ArrayList<>();
+            for (PostEntity post : posts) {
+                Set<String> postTerms = PostSearchIndex.terms(post.title + " " + post.content);
+                if (postTerms.containsAll(terms)) {
+                    all.add(post.id);
+                }
+                if (!Collections.disjoint(postTerms, terms)) {
+                    any.add(post.id);
+                }
+            }
+            assertTrue(Arrays.equals(index.searchAll(query), all.stream().mapToInt(Integer::intValue).toArray()));
+            assertTrue(Arrays.equals(index.searchAny(query), any.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    @Test
+    void searchBenchmarkTest() {
+        int count = 1_000_000;
+        Random random = new Random(7);
+        PostSearchIndex index = new PostSearchIndex();
+        List<PostEntity> posts = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            // 흔한 단어와 드문 단어를 섞는다.
+            String content = "word" + random.nextInt(100) + " word" + random.nextInt(10_000) + " tag" + random.nextInt(1_000);
+            PostEntity entity = new PostEntity(id, "title" + (id % 10), content);
+            posts.add(entity);
+            index.add(entity);
+        }
+
+        long begin = System.nanoTime();
+        int scanned = 0;
+        for (PostEntity post : posts) {
+            // 단어 경계를 맞추기 위해 앞뒤에 공백을 붙여 비교한다.
+            String content = " " + post.content + " ";
+            if (content.contains(" word7 ") && content.contains(" tag42 ")) {
+                scanned++;
+            }
+        }
+        long scan = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        int[] found = index.searchAll("word7 tag42");
+        long indexed = System.nanoTime() - begin;
+
+        System.out.println("contains scan = " + scan / 1000 + "us");
+        System.out.println("inverted index = " + indexed / 1000 + "us");
+        assertTrue(found.length == scanned);
+    }
+
+    @Test
+    void contentArenaTest() throws IOException {
+        Path file = Files.createTempFile("content", ".arena");
+        // 1KB 청크로 만들어 청크 경계에 걸치는 본문도 확인한다.
+        try (ContentArena direct = ContentArena.direct(10);
+             ContentArena mapped = ContentArena.mapped(file, 10)) {
+            for (ContentArena arena : List.of(direct, mapped)) {
+                String large = "본문".repeat(1_000);
+                PostEntity small = new PostEntity(1, "title", "content", arena);
+                PostEntity big = new PostEntity(2, "large", large, arena);
+                PostEntity empty = new PostEntity(3, "empty", "", arena);
+                PostEntity none = new PostEntity(4, "none", null, arena);
+
+                assertTrue(small.getContent().equals("content"));
+                assertTrue(big.getContent().equals(large));
+                assertTrue(empty.getContent().isEmpty());
+                assertTrue(none.getContent() == null);
+                assertTrue(big.getTitle().equals("large"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void contentArenaFileTest() throws IOException {
+        Path file = Files.createTempFile("content", ".arena");
+        try {
+            // 다른 데이터가 든 파일은 덮어쓰지 않는다.
+            Files.write(file, new byte[]{1, 2, 3});
+            boolean rejected = false;
+            try (ContentArena arena = ContentArena.mapped(file, 10)) {
+                arena.size();
+            } catch (IOException e) {
+                rejected = true;
+            }
+            assertTrue(rejected);
+            assertTrue(Files.size(file) == 3);
+
+            // 닫은 뒤에는 청크를 놓으므로 더는 읽을 수 없다.
+            ContentArena arena = ContentArena.direct(10);
+            long offset = arena.append("content".getBytes());
+            arena.close();
+            boolean closed = false;
+            try {
+                arena.read(offset, 7);
+            } catch (IllegalStateException e) {
+                closed = true;
+            }
+            assertTrue(closed);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void offHeapContentTest() {
+        int count = 10_000;
+        String body = "긴 본문 ".repeat(500);
+
+        // 게시글마다 다른 본문 문자열을 만든다.
+        long before = usedHeap();
+        List<PostEntity> onHeap = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            onHeap.add(new PostEntity(i, "title", body + i));
+        }
+        long onHeapBytes = usedHeap() - before;
+        onHeap = null;
+
+        ContentArena arena = ContentArena.direct();
+        before = usedHeap();
+        List<PostEntity> offHeap = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            offHeap.add(new PostEntity(i, "title", body + i, arena));
+        }
+        long offHeapBytes = usedHeap() - before;
+
+        System.out.println("on-heap content = " + onHeapBytes / 1024 + "KB");
+        System.out.println("off-heap content = " + offHeapBytes / 1024 + "KB");
+        assertTrue(offHeap.get(count - 1).getContent().equals(body + (count - 1)));
+        assertTrue(offHeapBytes < onHeapBytes);
+
+        PostService service = PostService.INSTANCE;
+        service.setContentArena(arena);
+        try {
+            PostEntity saved = service.savePost(new PostDto("off-heap", body));
+            assertTrue(service.findById(saved.id).getContent().equals(body));
+            assertTrue(service.searchAll("off heap 본문").contains(saved));
+        } finally {
+            service.setContentArena(null);
+        }
+    }
+
+    @Test
+    void pageTest() {
+        PostService service = PostService.INSTANCE;
+        Set<Integer> saved = new HashSet<>();
+        for (int i = 0; i < 2_500; i++) {
+            saved.add(service.savePost(new PostDto("page" + i, "content")).id);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        PostPage page = service.findPage(100);
+        while (true) {
+            assertTrue(page.getPosts().size() <= 100);
+            for (PostEntity entity : page.getPosts()) {
+                ids.add(entity.id);
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = service.findPage(page.getNextCursor(), 100);
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+        assertTrue(ids.size() == service.repository.size());
+        assertTrue(ids.containsAll(saved));
+
+        // 끝난 커서로 다시 읽어도 처음으로 돌아가지 않는다.
+        assertTrue(page.getNextCursor() == PostPage.NO_MORE);
+        PostPage end = service.findPage(PostPage.NO_MORE, 100);
+        assertTrue(end.getPosts().isEmpty() && !end.hasNext());
+        assertTrue(service.findPage(PostPage.START, 100).getPosts().get(0).id == ids.get(0));
+    }
+
+    @Test
+    void streamTest() {
+        PostTable table = new PostTable();
+        for (int id = 0; id < 100_000; id += 3) {
+            table.put(new PostEntity(id, "title" + id, "content"));
+        }
+
+        List<Integer> sequential = new ArrayList<>();
+        table.forEach(entity -> sequential.add(entity.id));
+        List<Integer> streamed = StreamSupport.stream(table.spliterator(), false)
+                .map(entity -> entity.id)
+                .collect(Collectors.toList());
+        List<Integer> parallel = StreamSupport.stream(table.spliterator(), true)
+                .map(entity -> entity.id)
+                .collect(Collectors.toList());
+
+        assertTrue(streamed.equals(sequential));
+        // 나눠 읽어도 순서가 유지된다.
+        assertTrue(parallel.equals(sequential));
+        assertTrue(table.spliterator().trySplit() != null);
+
+        PostService service = PostService.INSTANCE;
+        assertTrue(service.stream().count() == service.repository.size());
+        assertTrue(service.stream().parallel().count() == service.repository.size());
+    }
+
+    @Test
+    void sparseTableTest() {
+        // 가져온 게시글처럼 번호가 멀리 떨어져 있다.
+        PostTable table = new PostTable();
+        int count = 3_000;
+        for (int i = 0; i < count; i++) {
+            table.put(new PostEntity(i * 700_001, "title" + i, "content"));
+        }
+
+        List<PostEntity> page = new ArrayList<>();
+        int last = table.collect(PostPage.START, 20, page);
+        assertTrue(page.size() == 20 && last == 19 * 700_001);
+
+        List<Integer> sequential = new ArrayList<>();
+        table.forEach(entity -> sequential.add(entity.id));
+        List<Integer> parallel = StreamSupport.stream(table.spliterator(), true)
+                .map(entity -> entity.id)
+                .collect(Collectors.toList());
+        assertTrue(sequential.size() == count);
+        assertTrue(parallel.equals(sequential));
+
+        // 번호 폭이 아니라 게시글 수로 반씩 나눈다.
+        Spliterator<PostEntity> suffix = table.spliterator();
+        Spliterator<PostEntity> prefix = suffix.trySplit();
+        long[] counted = new long[2];
+        prefix.forEachRemaining(entity -> counted[0]++);
+        suffix.forEachRemaining(entity -> counted[1]++);
+        assertTrue(counted[0] + counted[1] == count);
+        assertTrue(Math.abs(counted[0] - counted[1]) <= 2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
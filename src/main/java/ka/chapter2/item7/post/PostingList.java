@@ -0,0 +1,248 @@
+package ka.chapter2.item7.post;
+
+import java.util.Arrays;
+
+// 한 단어가 나온 게시글 번호 목록 (오름차순)
+class PostingList {
+    static final int NO_MORE = Integer.MAX_VALUE;
+    private static final int BLOCK_SIZE = 128;
+
+    // 번호는 BLOCK_SIZE개씩 블록으로 묶어 차이값(delta)을 varint로 압축한다.
+    // 블록의 첫/마지막 번호가 건너뛰기 포인터 역할을 하므로 교집합에서 필요 없는 블록은 풀지 않는다.
+    private Block[] blocks = new Block[4];
+    private int blockCount;
+    // 아직 블록으로 묶지 않은 최근 번호. 저장이 동시에 일어나 번호가 조금 뒤섞여 들어와도 여기서 정렬된다.
+    private final int[] tail = new int[BLOCK_SIZE];
+    private int tailSize;
+
+    synchronized void add(int id) {
+        if (blockCount > 0 && id <= blocks[blockCount - 1].lastId) {
+            insertIntoBlock(id);
+            return;
+        }
+        int index = Arrays.binarySearch(tail, 0, tailSize, id);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        System.arraycopy(tail, index, tail, index + 1, tailSize - index);
+        tail[index] = id;
+        if (++tailSize == BLOCK_SIZE) {
+            appendBlock(Block.encode(tail, 0, tailSize));
+            tailSize = 0;
+        }
+    }
+
+    // 게시글이 바뀌었을 때 예전 단어에서 번호를 뺀다.
+    synchronized void remove(int id) {
+        if (blockCount == 0 || id > blocks[blockCount - 1].lastId) {
+            int index = Arrays.binarySearch(tail, 0, tailSize, id);
+            if (index >= 0) {
+                System.arraycopy(tail, index + 1, tail, index, tailSize - index - 1);
+                tailSize--;
+            }
+            return;
+        }
+
+        int low = findBlock(id);
+        Block block = blocks[low];
+        int[] ids = new int[block.count];
+        block.decode(ids);
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return;
+        }
+        if (block.count > 1) {
+            System.arraycopy(ids, index + 1, ids, index, block.count - index - 1);
+            blocks[low] = Block.encode(ids, 0, block.count - 1);
+            return;
+        }
+        // 빈 블록은 빼고 새 배열을 만들어 이전 스냅샷은 그대로 둔다.
+        Block[] removed = new Block[Math.max(4, blocks.length)];
+        System.arraycopy(blocks, 0, removed, 0, low);
+        System.arraycopy(blocks, low + 1, removed, low, blockCount - low - 1);
+        blocks = removed;
+        blockCount--;
+    }
+
+    // 첫 번호가 id 이하인 마지막 블록 (없으면 0)
+    private int findBlock(int id) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks[mid].firstId <= id) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // 이미 묶인 블록보다 작은 번호가 늦게 들어온 드문 경우. 해당 블록만 새로 만들어 바꾼다.
+    private void insertIntoBlock(int id) {
+        int low = findBlock(id);
+        Block block = blocks[low];
+        int[] ids = new int[block.count + 1];
+        block.decode(ids);
+        int index = Arrays.binarySearch(ids, 0, block.count, id);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        System.arraycopy(ids, index, ids, index + 1, block.count - index);
+        ids[index] = id;
+
+        if (ids.length <= BLOCK_SIZE * 2) {
+            // 블록은 final 필드만 가지므로 락 없이 읽는 쪽도 이전 블록이나 새 블록 중 하나를 온전히 본다.
+            blocks[low] = Block.encode(ids, 0, ids.length);
+            return;
+        }
+        int half = ids.length / 2;
+        Block[] split = Arrays.copyOf(blocks, Math.max(blocks.length, blockCount + 1));
+        System.arraycopy(blocks, low + 1, split, low + 2, blockCount - low - 1);
+        split[low] = Block.encode(ids, 0, half);
+        split[low + 1] = Block.encode(ids, half, ids.length);
+        // 배열을 새로 만들었으므로 이전 스냅샷은 그대로 남는다.
+        blocks = split;
+        blockCount++;
+    }
+
+    private void appendBlock(Block block) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        blocks[blockCount++] = block;
+    }
+
+    synchronized Cursor cursor() {
+        return new Cursor(blocks, blockCount, Arrays.copyOf(tail, tailSize));
+    }
+
+    private static class Block {
+        final int firstId;
+        final int lastId;
+        final int count;
+        // 두 번째 번호부터 앞 번호와의 차이를 varint로 저장
+        final byte[] deltas;
+
+        private Block(int firstId, int lastId, int count, byte[] deltas) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.count = count;
+            this.deltas = deltas;
+        }
+
+        static Block encode(int[] ids, int from, int to) {
+            byte[] buffer = new byte[(to - from) * 5];
+            int length = 0;
+            for (int i = from + 1; i < to; i++) {
+                int delta = ids[i] - ids[i - 1];
+                while ((delta & ~0x7F) != 0) {
+                    buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[length++] = (byte) delta;
+            }
+            return new Block(ids[from], ids[to - 1], to - from, Arrays.copyOf(buffer, length));
+        }
+
+        void decode(int[] out) {
+            int id = firstId;
+            out[0] = id;
+            int position = 0;
+            for (int i = 1; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = deltas[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += delta;
+                out[i] = id;
+            }
+        }
+    }
+
+    // 호출 시점의 목록을 앞에서부터 읽는다.
+    static class Cursor {
+        private final Block[] blocks;
+        private final int blockCount;
+        private final int[] tail;
+        private final int size;
+
+        // blockCount이면 tail을 읽는 중
+        private int block = -1;
+        private int[] buffer = new int[BLOCK_SIZE * 2];
+        private int bufferSize;
+        private int position;
+
+        private Cursor(Block[] blocks, int blockCount, int[] tail) {
+            this.blocks = blocks;
+            this.blockCount = blockCount;
+            this.tail = tail;
+            int size = tail.length;
+            for (int i = 0; i < blockCount; i++) {
+                size += blocks[i].count;
+            }
+            this.size = size;
+            load(0);
+        }
+
+        // 대략적인 목록 길이. 교집합은 짧은 목록부터 돌린다.
+        int size() {
+            return size;
+        }
+
+        int id() {
+            return position < bufferSize ? buffer[position] : NO_MORE;
+        }
+
+        void next() {
+            if (++position >= bufferSize && block < blockCount) {
+                load(block + 1);
+            }
+        }
+
+        // target 이상인 첫 번호로 이동
+        void advance(int target) {
+            if (id() >= target) {
+                return;
+            }
+            if (block < blockCount && blocks[block].lastId < target) {
+                // 마지막 번호가 target 이상인 첫 블록을 이진 탐색으로 찾는다. 없으면 tail로 간다.
+                int low = block + 1;
+                int high = blockCount;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (blocks[mid].lastId < target) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                load(low);
+            }
+            int index = Arrays.binarySearch(buffer, position, bufferSize, target);
+            position = index >= 0 ? index : -index - 1;
+            if (position >= bufferSize && block < blockCount) {
+                load(block + 1);
+            }
+        }
+
+        private void load(int index) {
+            block = index;
+            position = 0;
+            if (index < blockCount) {
+                blocks[index].decode(buffer);
+                bufferSize = blocks[index].count;
+            } else {
+                buffer = tail;
+                bufferSize = tail.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ka.chapter2.item7.post;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SequentialPostIdAllocator implements PostIdAllocator {
+    private final AtomicInteger next;
+
+    SequentialPostIdAllocator(int first) {
+        next = new AtomicInteger(first);
+    }
+
+    @Override
+    public int allocate() {
+        int id = next.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("post ids are exhausted");
+        }
+        return id;
+    }
+}
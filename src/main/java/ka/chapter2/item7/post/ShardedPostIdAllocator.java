@@ -0,0 +1,55 @@
+package ka.chapter2.item7.post;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class ShardedPostIdAllocator implements PostIdAllocator {
+    private final AtomicInteger nextBlock;
+    private final int blockSize;
+    private final int mask;
+    // 조각마다 (다음 번호 << 32 | 블록 끝)을 하나의 long으로 두어 CAS 한 번으로 번호를 받는다.
+    private final AtomicLongArray shards;
+
+    ShardedPostIdAllocator(int first, int shards, int blockSize) {
+        if (shards < 1 || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("shards must be a power of two: " + shards);
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.nextBlock = new AtomicInteger(first);
+        this.blockSize = blockSize;
+        this.mask = shards - 1;
+        // 처음에는 모든 조각이 비어 있다. (다음 번호 == 블록 끝)
+        this.shards = new AtomicLongArray(shards);
+    }
+
+    @Override
+    public int allocate() {
+        int shard = (int) Thread.currentThread().getId() & mask;
+        while (true) {
+            long state = shards.get(shard);
+            int next = (int) (state >>> 32);
+            int end = (int) state;
+            if (next < end) {
+                if (shards.compareAndSet(shard, state, pack(next + 1, end))) {
+                    return next;
+                }
+                continue;
+            }
+
+            int start = nextBlock.getAndAdd(blockSize);
+            if (start < 0 || start > Integer.MAX_VALUE - blockSize) {
+                throw new IllegalStateException("post ids are exhausted");
+            }
+            // 같은 조각의 다른 스레드가 먼저 채웠다면 이번에 받은 블록은 버린다. (번호 빈틈)
+            if (shards.compareAndSet(shard, state, pack(start + 1, start + blockSize))) {
+                return start;
+            }
+        }
+    }
+
+    private static long pack(int next, int end) {
+        return ((long) next << 32) | (end & 0xFFFFFFFFL);
+    }
+}